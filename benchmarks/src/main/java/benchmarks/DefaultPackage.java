@@ -0,0 +1,50 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.function.Consumer;
+
+/**
+ * Handles to the application classes in the default package, which Java code in a named package
+ * cannot refer to by name. JMH does not allow benchmarks in the default package. The handles are
+ * constants, so the JIT compiles calls through them like direct calls.
+ */
+final class DefaultPackage {
+    static final MethodHandle PARSE_LOCATION;
+    static final MethodHandle NEW_OUTPUT;
+    static final MethodHandle OUTPUT_APPEND_LINE;
+    static final MethodHandle OUTPUT_APPEND_ERROR;
+    static final MethodHandle OUTPUT_FLUSH;
+    static final MethodHandle OUTPUT_CLEAR;
+    static final MethodHandle OUTPUT_LINE_COUNT;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> errorParser = Class.forName("ErrorParser");
+            Class<?> location = Class.forName("ErrorParser$Location");
+            PARSE_LOCATION = lookup.findStatic(errorParser, "parseLocation", MethodType.methodType(location, String.class))
+                    .asType(MethodType.methodType(Object.class, String.class));
+
+            Class<?> output = Class.forName("Output");
+            NEW_OUTPUT = lookup.findConstructor(output, MethodType.methodType(void.class, Consumer.class))
+                    .asType(MethodType.methodType(Object.class, Consumer.class));
+            OUTPUT_APPEND_LINE = lookup.findVirtual(output, "appendLine", MethodType.methodType(void.class, String.class))
+                    .asType(MethodType.methodType(void.class, Object.class, String.class));
+            OUTPUT_APPEND_ERROR = lookup.findVirtual(output, "appendError", MethodType.methodType(void.class, String.class))
+                    .asType(MethodType.methodType(void.class, Object.class, String.class));
+            OUTPUT_FLUSH = lookup.findVirtual(output, "flush", MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(void.class, Object.class));
+            OUTPUT_CLEAR = lookup.findVirtual(output, "clear", MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(void.class, Object.class));
+            OUTPUT_LINE_COUNT = lookup.findVirtual(output, "getLineCount", MethodType.methodType(long.class))
+                    .asType(MethodType.methodType(long.class, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private DefaultPackage() {
+    }
+}
@@ -0,0 +1,59 @@
+package benchmarks;
+
+/**
+ * Generates script text that resembles real Swift and Kotlin code, for the highlighting benchmarks.
+ */
+final class Documents {
+    private static final String[] SWIFT = {
+            "import Foundation",
+            "",
+            "/* Computes running totals",
+            "   over the input values */",
+            "struct Account {",
+            "    let id: Int",
+            "    var balance: Double = 0.0",
+            "    func describe() -> String {",
+            "        return \"Account \\(id): \\(balance)\" // formatted",
+            "    }",
+            "}",
+            "var accounts = [Account]()",
+            "for i in 0..<100 where i % 2 == 0 {",
+            "    accounts.append(Account(id: i, balance: Double(i) * 1.5))",
+            "}",
+            "print(accounts.map { $0.describe() }.joined(separator: \", \"))",
+    };
+
+    private static final String[] KOTLIN = {
+            "import kotlin.math.max",
+            "",
+            "/* Computes running totals",
+            "   over the input values */",
+            "data class Account(val id: Int, var balance: Double = 0.0) {",
+            "    fun describe(): String {",
+            "        return \"Account $id: ${balance}\" // formatted",
+            "    }",
+            "}",
+            "val accounts = mutableListOf<Account>()",
+            "for (i in 0 until 100) {",
+            "    if (i % 2 == 0) accounts.add(Account(i, i * 1.5))",
+            "}",
+            "println(accounts.joinToString(\", \") { it.describe() })",
+            "val best = accounts.fold(0.0) { acc, a -> max(acc, a.balance) }",
+            "println(\"Best: $best\")",
+    };
+
+    private Documents() {
+    }
+
+    static String script(String language, int lines) {
+        String[] template = "Kotlin".equals(language) ? KOTLIN : SWIFT;
+        StringBuilder text = new StringBuilder(lines * 40);
+        for (int i = 0; i < lines; i++) {
+            if (i > 0) {
+                text.append('\n');
+            }
+            text.append(template[i % template.length]);
+        }
+        return text.toString();
+    }
+}
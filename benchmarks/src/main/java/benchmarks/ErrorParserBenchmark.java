@@ -0,0 +1,53 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of ErrorParser.parseLocation over compiler diagnostics and over ordinary output lines,
+ * which make up almost everything the output view scans.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ErrorParserBenchmark {
+    private static final String[] DIAGNOSTICS = {
+            "/tmp/swift_script_123.swift:12:5: error: cannot find 'foo' in scope",
+            "/tmp/work/main.swift:7:18: warning: variable 'x' was never mutated; consider changing to 'let'",
+            "script.kts:3:9: error: unresolved reference: printn",
+            "/home/user/scripts/very/deeply/nested/path/to/script.kts:120:1: warning: parameter 'args' is never used",
+    };
+
+    private static final String[] PLAIN = {
+            "Account 42: 63.0",
+            "Processing item 1934 of 100000",
+            "Result: [1, 2, 3, 5, 8, 13, 21, 34, 55, 89]",
+            "time: 12:30:45 status: ok",
+    };
+
+    private int index;
+
+    @Benchmark
+    public Object diagnosticLine() throws Throwable {
+        return (Object) DefaultPackage.PARSE_LOCATION.invokeExact(DIAGNOSTICS[index++ & 3]);
+    }
+
+    @Benchmark
+    public Object plainLine() throws Throwable {
+        return (Object) DefaultPackage.PARSE_LOCATION.invokeExact(PLAIN[index++ & 3]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(8)
+    public void mixedLines(Blackhole blackhole) throws Throwable {
+        for (int i = 0; i < 4; i++) {
+            blackhole.consume((Object) DefaultPackage.PARSE_LOCATION.invokeExact(DIAGNOSTICS[i]));
+            blackhole.consume((Object) DefaultPackage.PARSE_LOCATION.invokeExact(PLAIN[i]));
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package benchmarks;
+
+import Highlighters.KotlinHighlighter;
+import Highlighters.ScriptHighlighter;
+import Highlighters.SwiftHighlighter;
+import org.openjdk.jmh.annotations.*;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultStyledDocument;
+import javax.swing.text.StyledDocument;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full-document highlighting, the cost paid when a file is opened or the language is switched.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HighlightBenchmark {
+    @Param({"Swift", "Kotlin"})
+    public String language;
+
+    @Param({"1000", "10000", "100000"})
+    public int lines;
+
+    private ScriptHighlighter highlighter;
+    private StyledDocument document;
+
+    @Setup(Level.Trial)
+    public void setUp() throws BadLocationException {
+        highlighter = "Kotlin".equals(language) ? new KotlinHighlighter() : new SwiftHighlighter();
+        document = new DefaultStyledDocument();
+        document.insertString(0, Documents.script(language, lines), null);
+    }
+
+    @Benchmark
+    public StyledDocument highlight() {
+        highlighter.highlight(document);
+        return document;
+    }
+}
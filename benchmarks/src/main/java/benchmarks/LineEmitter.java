@@ -0,0 +1,25 @@
+package benchmarks;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A stand-in for a script process: writes the requested number of numbered lines to stdout as fast
+ * as it can and exits.
+ */
+public class LineEmitter {
+    public static void main(String[] args) throws IOException {
+        int lines = Integer.parseInt(args[0]);
+        byte[] prefix = "Processing item ".getBytes(StandardCharsets.UTF_8);
+        byte[] suffix = " of the input, running total so far is within bounds\n".getBytes(StandardCharsets.UTF_8);
+        try (OutputStream out = new BufferedOutputStream(System.out, 1 << 16)) {
+            for (int i = 0; i < lines; i++) {
+                out.write(prefix);
+                out.write(Integer.toString(i).getBytes(StandardCharsets.US_ASCII));
+                out.write(suffix);
+            }
+        }
+    }
+}
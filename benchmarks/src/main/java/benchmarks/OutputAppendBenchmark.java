@@ -0,0 +1,89 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.swing.SwingUtilities;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Ingestion rate of Output.appendLine and appendError: batches of lines queued from a reader thread, then
+ * flushed into the line store on the EDT, as happens once per frame during a run. Every fourth line is a
+ * diagnostic, which only stderr text is searched for.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class OutputAppendBenchmark {
+    private static final int BATCH_LINES = 1000;
+
+    @Param({"1", "100"})
+    public int linesPerAppend;
+
+    @Param({"stdout", "stderr"})
+    public String stream;
+
+    private Object output;
+    private String[] chunks;
+    private boolean stderr;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        Consumer<Object> ignoreClicks = location -> {
+        };
+        stderr = "stderr".equals(stream);
+        output = (Object) DefaultPackage.NEW_OUTPUT.invokeExact((Consumer) ignoreClicks);
+        chunks = new String[BATCH_LINES / linesPerAppend];
+        int line = 0;
+        for (int i = 0; i < chunks.length; i++) {
+            StringBuilder chunk = new StringBuilder();
+            for (int j = 0; j < linesPerAppend; j++, line++) {
+                if (j > 0) {
+                    chunk.append('\n');
+                }
+                if (line % 4 == 3) {
+                    chunk.append("/tmp/main.swift:").append(line).append(":5: error: cannot find 'x' in scope");
+                } else {
+                    chunk.append("Processing item ").append(line).append(" of the input");
+                }
+            }
+            chunks[i] = chunk.toString();
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void clear() throws Exception {
+        SwingUtilities.invokeAndWait(() -> {
+            try {
+                DefaultPackage.OUTPUT_CLEAR.invokeExact(output);
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_LINES)
+    public long appendAndFlush() throws Throwable {
+        for (String chunk : chunks) {
+            if (stderr) {
+                DefaultPackage.OUTPUT_APPEND_ERROR.invokeExact(output, chunk);
+            } else {
+                DefaultPackage.OUTPUT_APPEND_LINE.invokeExact(output, chunk);
+            }
+        }
+        long[] count = new long[1];
+        SwingUtilities.invokeAndWait(() -> {
+            try {
+                DefaultPackage.OUTPUT_FLUSH.invokeExact(output);
+                count[0] = (long) DefaultPackage.OUTPUT_LINE_COUNT.invokeExact(output);
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        return count[0];
+    }
+}
@@ -0,0 +1,72 @@
+package benchmarks;
+
+import Runners.LineRingBuffer;
+import Runners.OutputChunk;
+import Runners.OutputPump;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the output of a process emitting N lines through OutputPump, keeping every line in a
+ * LineRingBuffer the way the runners do. Includes the process start, which is the same for every
+ * pump implementation; compare the 10k and 1M line results to separate it out.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class OutputPumpBenchmark {
+    @Param({"10000", "1000000"})
+    public int lines;
+
+    private ProcessBuilder emitter;
+    private LineRingBuffer history;
+    private long batchedLines;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        emitter = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                LineEmitter.class.getName(), Integer.toString(lines));
+        emitter.redirectError(ProcessBuilder.Redirect.DISCARD);
+    }
+
+    @Setup(Level.Invocation)
+    public void newHistory() {
+        history = new LineRingBuffer(20000, 4 * 1024 * 1024);
+        batchedLines = 0;
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeHistory() throws IOException {
+        history.close();
+    }
+
+    @Benchmark
+    public long pump() throws IOException, InterruptedException {
+        Process process = emitter.start();
+        OutputPump pump = new OutputPump(process.getInputStream(), new OutputPump.Listener() {
+            @Override
+            public boolean onLine(OutputPump source, byte[] buffer, int start, int end) {
+                history.add(buffer, start, end);
+                return true;
+            }
+
+            @Override
+            public void onBatch(OutputChunk chunk) {
+                batchedLines += chunk.getLineCount();
+            }
+        });
+        pump.pump();
+        process.waitFor();
+        if (batchedLines != lines) {
+            throw new IllegalStateException("Expected " + lines + " lines but pumped " + batchedLines);
+        }
+        return history.getLineCount();
+    }
+}
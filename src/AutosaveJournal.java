@@ -0,0 +1,391 @@
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Crash-safe autosave for one document: every insert and remove is appended to a journal as a small
+ * checksummed record, so autosave I/O is proportional to the edit, not to the document.
+ * <p>
+ * State is kept in generations. {@code snapshot-N.txt} holds the full text at the start of generation N
+ * and {@code journal-N.log} the edits made since. Once the journal grows past {@link #COMPACT_BYTES}, a new
+ * generation is started from the current text; its snapshot is written atomically in the background and
+ * only then are the older files deleted. After a crash, the newest snapshot is loaded and the journals
+ * from its generation on are replayed up to the first torn or corrupt record. A clean {@link #close()}
+ * removes everything. All disk writes happen in order on one background thread.
+ * <p>
+ * Each open document journals into its own directory below {@link #defaultDirectory()}, locked for as
+ * long as the document is open, so the documents of several windows or crashed sessions never mix.
+ */
+public class AutosaveJournal {
+    private static final long COMPACT_BYTES = 512 * 1024;
+    private static final long FORCE_INTERVAL_MS = 1000;
+    private static final byte INSERT = 'I';
+    private static final byte REMOVE = 'R';
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String JOURNAL_PREFIX = "journal-";
+
+    private final Path directory;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    private final ExecutorService writer;
+    private Document doc;
+    private long generation;
+    private boolean compactionRequested = false;
+
+    // Only touched on the writer thread.
+    private FileChannel journal;
+    private long journalBytes;
+    private long lastForceMillis;
+
+    private AutosaveJournal(Path directory, FileChannel lockChannel, FileLock lock) {
+        this.directory = directory;
+        this.lockChannel = lockChannel;
+        this.lock = lock;
+        writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "autosave");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static Path defaultDirectory() {
+        return Paths.get(System.getProperty("user.home"), ".swift-kotlin-tool", "autosave");
+    }
+
+    /**
+     * Creates a journal in a new directory below {@code root}, or returns null if that fails.
+     */
+    public static AutosaveJournal create(Path root) {
+        try {
+            Files.createDirectories(root);
+            return open(Files.createTempDirectory(root, "doc-"));
+        } catch (IOException e) {
+            System.err.println("Autosave disabled: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Takes ownership of the journal directories below {@code root} that no running document holds, which
+     * are those left behind by sessions that did not close cleanly.
+     */
+    public static List<AutosaveJournal> openAbandoned(Path root) {
+        List<AutosaveJournal> abandoned = new ArrayList<>();
+        if (!Files.isDirectory(root)) {
+            return abandoned;
+        }
+        try (Stream<Path> directories = Files.list(root)) {
+            for (Path directory : (Iterable<Path>) directories::iterator) {
+                if (Files.isDirectory(directory)) {
+                    AutosaveJournal journal = open(directory);
+                    if (journal != null) {
+                        abandoned.add(journal);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Could not list autosave directories: " + e.getMessage());
+        }
+        return abandoned;
+    }
+
+    /**
+     * Takes ownership of the autosave directory. Returns null if it cannot be created or another
+     * instance of the tool holds it.
+     */
+    private static AutosaveJournal open(Path directory) {
+        try {
+            Files.createDirectories(directory);
+            FileChannel channel = FileChannel.open(directory.resolve("lock"),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            FileLock lock;
+            try {
+                lock = channel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                lock = null;
+            }
+            if (lock == null) {
+                channel.close();
+                return null;
+            }
+            return new AutosaveJournal(directory, channel, lock);
+        } catch (IOException e) {
+            System.err.println("Autosave disabled: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Rebuilds the text left behind by a session that did not close cleanly, or returns null if there is none.
+     */
+    public String recover() {
+        long[] generations = existingGenerations();
+        if (generations.length == 0) {
+            return null;
+        }
+        long base = -1;
+        for (int i = generations.length - 1; i >= 0 && base < 0; i--) {
+            if (Files.exists(snapshotPath(generations[i]))) {
+                base = generations[i];
+            }
+        }
+        if (base < 0) {
+            return null;
+        }
+        try {
+            StringBuilder text = new StringBuilder(new String(Files.readAllBytes(snapshotPath(base)),
+                    StandardCharsets.UTF_8));
+            for (long gen = base; Files.exists(journalPath(gen)); gen++) {
+                replay(journalPath(gen), text);
+            }
+            return text.toString();
+        } catch (IOException e) {
+            System.err.println("Could not recover autosave: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Starts journaling edits to the document, from its current text. Must be called on the EDT.
+     */
+    public void start(Document doc) {
+        this.doc = doc;
+        long[] generations = existingGenerations();
+        generation = generations.length == 0 ? 0 : generations[generations.length - 1] + 1;
+        startGeneration(currentText());
+    }
+
+    /**
+     * Appends an insert or remove to the journal. Must be called on the EDT for every such event, in order.
+     */
+    public void record(DocumentEvent event) {
+        if (doc == null) {
+            return;
+        }
+        ByteBuffer entry;
+        if (event.getType() == DocumentEvent.EventType.INSERT) {
+            String inserted;
+            try {
+                inserted = doc.getText(event.getOffset(), event.getLength());
+            } catch (BadLocationException e) {
+                e.printStackTrace();
+                return;
+            }
+            byte[] bytes = inserted.getBytes(StandardCharsets.UTF_8);
+            entry = ByteBuffer.allocate(1 + 4 + 4 + bytes.length + 4);
+            entry.put(INSERT).putInt(event.getOffset()).putInt(bytes.length).put(bytes);
+        } else if (event.getType() == DocumentEvent.EventType.REMOVE) {
+            entry = ByteBuffer.allocate(1 + 4 + 4 + 4);
+            entry.put(REMOVE).putInt(event.getOffset()).putInt(event.getLength());
+        } else {
+            return;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(entry.array(), 0, entry.position());
+        entry.putInt((int) crc.getValue());
+        entry.flip();
+        writer.execute(() -> append(entry));
+    }
+
+    /**
+     * Stops journaling and deletes the autosave files and directory, for a clean shutdown.
+     */
+    public void close() {
+        doc = null;
+        writer.execute(() -> {
+            closeJournal();
+            deleteGenerationsBefore(Long.MAX_VALUE);
+        });
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+            lock.release();
+            lockChannel.close();
+            Files.deleteIfExists(directory.resolve("lock"));
+            Files.deleteIfExists(directory);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("Error closing autosave: " + e.getMessage());
+        }
+    }
+
+    private void startGeneration(String text) {
+        long gen = generation;
+        writer.execute(() -> {
+            closeJournal();
+            try {
+                ScriptFiles.save(snapshotPath(gen), text, percent -> {
+                });
+                journal = FileChannel.open(journalPath(gen), StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                journalBytes = 0;
+                deleteGenerationsBefore(gen);
+            } catch (IOException e) {
+                System.err.println("Autosave snapshot failed: " + e.getMessage());
+            }
+        });
+    }
+
+    private void append(ByteBuffer entry) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            while (entry.hasRemaining()) {
+                journal.write(entry);
+            }
+            journalBytes += entry.limit();
+            long now = System.currentTimeMillis();
+            if (now - lastForceMillis >= FORCE_INTERVAL_MS) {
+                journal.force(false);
+                lastForceMillis = now;
+            }
+        } catch (IOException e) {
+            System.err.println("Autosave write failed: " + e.getMessage());
+            closeJournal();
+            return;
+        }
+        if (journalBytes > COMPACT_BYTES) {
+            SwingUtilities.invokeLater(this::compact);
+        }
+    }
+
+    /**
+     * Starts a new generation from the current text. Runs on the EDT, so no edit can fall between the
+     * text it captures and the journal that follows it.
+     */
+    private void compact() {
+        if (doc == null || compactionRequested) {
+            return;
+        }
+        compactionRequested = true;
+        generation++;
+        startGeneration(currentText());
+        writer.execute(() -> SwingUtilities.invokeLater(() -> compactionRequested = false));
+    }
+
+    private String currentText() {
+        try {
+            return doc.getText(0, doc.getLength());
+        } catch (BadLocationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void closeJournal() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.force(false);
+            journal.close();
+        } catch (IOException e) {
+            System.err.println("Error closing autosave journal: " + e.getMessage());
+        }
+        journal = null;
+    }
+
+    /**
+     * Applies the records of one journal to the text, stopping at the first incomplete or corrupt record.
+     */
+    private static void replay(Path journalFile, StringBuilder text) throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(journalFile));
+        CRC32 crc = new CRC32();
+        while (data.remaining() >= 1 + 4 + 4 + 4) {
+            int start = data.position();
+            byte type = data.get();
+            int offset = data.getInt();
+            int length = data.getInt();
+            int payload = type == INSERT ? length : 0;
+            if ((type != INSERT && type != REMOVE) || length < 0 || data.remaining() < payload + 4) {
+                return;
+            }
+            byte[] bytes = new byte[payload];
+            data.get(bytes);
+            crc.reset();
+            crc.update(data.array(), start, data.position() - start);
+            if (data.getInt() != (int) crc.getValue()) {
+                return;
+            }
+            if (type == INSERT && offset <= text.length()) {
+                text.insert(offset, new String(bytes, StandardCharsets.UTF_8));
+            } else if (type == REMOVE && offset + length <= text.length()) {
+                text.delete(offset, offset + length);
+            } else {
+                return;
+            }
+        }
+    }
+
+    private long[] existingGenerations() {
+        List<Long> found = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                long gen = generationOf(file);
+                if (gen >= 0 && !found.contains(gen)) {
+                    found.add(gen);
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("Could not list autosave files: " + e.getMessage());
+        }
+        return found.stream().mapToLong(Long::longValue).sorted().toArray();
+    }
+
+    private void deleteGenerationsBefore(long gen) {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                long fileGen = generationOf(file);
+                if (fileGen >= 0 && fileGen < gen) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Could not delete old autosave files: " + e.getMessage());
+        }
+    }
+
+    private static long generationOf(Path file) {
+        String name = file.getFileName().toString();
+        String number;
+        if (name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(".txt")) {
+            number = name.substring(SNAPSHOT_PREFIX.length(), name.length() - 4);
+        } else if (name.startsWith(JOURNAL_PREFIX) && name.endsWith(".log")) {
+            number = name.substring(JOURNAL_PREFIX.length(), name.length() - 4);
+        } else {
+            return -1;
+        }
+        try {
+            return Long.parseLong(number);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private Path snapshotPath(long gen) {
+        return directory.resolve(SNAPSHOT_PREFIX + gen + ".txt");
+    }
+
+    private Path journalPath(long gen) {
+        return directory.resolve(JOURNAL_PREFIX + gen + ".log");
+    }
+}
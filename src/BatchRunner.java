@@ -0,0 +1,253 @@
+import Runners.KotlinRunner;
+import Runners.RunHandle;
+import Runners.RunScheduler;
+import Runners.RunStats;
+import Runners.SwiftRunner;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Headless entry point that runs every Swift and Kotlin script found in the given files or
+ * directories across a worker pool, writing each script's output to its own log file.
+ */
+public class BatchRunner {
+    private static final String USAGE =
+            "Usage: java Main --batch [--jobs N] [--out DIR] [--warm-kotlin] <file-or-directory>...";
+
+    private final List<Path> inputs = new ArrayList<>();
+    private Path logDirectory = Paths.get("batch-logs");
+    private int jobs = Runtime.getRuntime().availableProcessors();
+    private boolean warmKotlin = false;
+
+    private static class ScriptJob {
+        final Path script;
+        final String language;
+        final Path log;
+        BufferedWriter writer;
+        RunHandle handle;
+        String failure;
+
+        ScriptJob(Path script, String language, Path log) {
+            this.script = script;
+            this.language = language;
+            this.log = log;
+        }
+
+        synchronized void write(String text) {
+            try {
+                writer.write(text);
+                writer.newLine();
+            } catch (IOException e) {
+                failure = "log write failed: " + e.getMessage();
+            }
+        }
+    }
+
+    public static int run(String[] args) {
+        BatchRunner batch = new BatchRunner();
+        if (!batch.parseArguments(args)) {
+            System.err.println(USAGE);
+            return 2;
+        }
+        try {
+            return batch.runAll();
+        } catch (IOException e) {
+            System.err.println("Batch run failed: " + e.getMessage());
+            return 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Batch run interrupted");
+            return 1;
+        }
+    }
+
+    private boolean parseArguments(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if ("--batch".equals(arg)) {
+                continue;
+            }
+            if ("--warm-kotlin".equals(arg)) {
+                warmKotlin = true;
+            } else if ("--jobs".equals(arg) && i + 1 < args.length) {
+                try {
+                    jobs = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+                if (jobs < 1) {
+                    return false;
+                }
+            } else if ("--out".equals(arg) && i + 1 < args.length) {
+                logDirectory = Paths.get(args[++i]);
+            } else if (arg.startsWith("--")) {
+                return false;
+            } else {
+                inputs.add(Paths.get(arg));
+            }
+        }
+        return !inputs.isEmpty();
+    }
+
+    private int runAll() throws IOException, InterruptedException {
+        List<ScriptJob> jobList = collectScripts();
+        if (jobList.isEmpty()) {
+            System.err.println("No .swift or .kts scripts found.");
+            return 1;
+        }
+        Files.createDirectories(logDirectory);
+
+        RunScheduler scheduler = new RunScheduler(jobs);
+        scheduler.register("Swift", SwiftRunner::new);
+        scheduler.register("Kotlin", KotlinRunner::new);
+        if (warmKotlin) {
+            KotlinRunner.setDaemonMode(true);
+        }
+
+        try {
+            for (ScriptJob job : jobList) {
+                String script;
+                try {
+                    script = Files.readString(job.script, StandardCharsets.UTF_8);
+                    job.writer = Files.newBufferedWriter(job.log, StandardCharsets.UTF_8);
+                } catch (IOException e) {
+                    job.failure = e.getMessage();
+                    continue;
+                }
+                RunHandle[] handle = new RunHandle[1];
+                job.handle = scheduler.submit(
+                        job.language,
+                        script,
+                        chunk -> job.write(chunk.getText()),
+                        error -> job.write("ERROR: " + error),
+                        () -> {
+                            job.write("ERROR: Script is waiting for input, which batch mode cannot provide.");
+                            handle[0].stop();
+                        }
+                );
+                handle[0] = job.handle;
+            }
+
+            boolean allPassed = true;
+            for (ScriptJob job : jobList) {
+                if (job.handle != null) {
+                    job.handle.awaitExitCode();
+                    synchronized (job) {
+                        try {
+                            job.writer.close();
+                        } catch (IOException e) {
+                            job.failure = "log close failed: " + e.getMessage();
+                        }
+                    }
+                }
+                RunStats stats = job.handle == null ? null : job.handle.getRunner().getLastRunStats();
+                if (job.failure != null || stats == null || stats.getExitCode() != 0) {
+                    allPassed = false;
+                }
+            }
+
+            printSummary(jobList);
+            writeStatsCsv(jobList);
+            return allPassed ? 0 : 1;
+        } finally {
+            for (ScriptJob job : jobList) {
+                if (job.handle != null) {
+                    job.handle.release();
+                }
+            }
+            scheduler.shutdown();
+            if (warmKotlin) {
+                KotlinRunner.setDaemonMode(false);
+            }
+        }
+    }
+
+    private List<ScriptJob> collectScripts() throws IOException {
+        List<ScriptJob> jobList = new ArrayList<>();
+        for (Path input : inputs) {
+            if (Files.isDirectory(input)) {
+                List<Path> scripts = new ArrayList<>();
+                try (Stream<Path> entries = Files.walk(input)) {
+                    entries.filter(Files::isRegularFile)
+                            .filter(path -> languageOf(path) != null)
+                            .sorted()
+                            .forEach(scripts::add);
+                }
+                for (Path script : scripts) {
+                    jobList.add(newJob(script, input.relativize(script)));
+                }
+            } else if (Files.isRegularFile(input) && languageOf(input) != null) {
+                jobList.add(newJob(input, input.getFileName()));
+            } else {
+                System.err.println("Skipping " + input + ": not a .swift or .kts script or directory");
+            }
+        }
+        return jobList;
+    }
+
+    private ScriptJob newJob(Path script, Path relativeName) {
+        String logName = relativeName.toString().replace('/', '_').replace('\\', '_') + ".log";
+        return new ScriptJob(script, languageOf(script), logDirectory.resolve(logName));
+    }
+
+    private static String languageOf(Path path) {
+        String name = path.getFileName().toString();
+        if (name.endsWith(".swift")) {
+            return "Swift";
+        }
+        if (name.endsWith(".kts")) {
+            return "Kotlin";
+        }
+        return null;
+    }
+
+    private void printSummary(List<ScriptJob> jobList) {
+        int nameWidth = "Script".length();
+        for (ScriptJob job : jobList) {
+            nameWidth = Math.max(nameWidth, job.script.toString().length());
+        }
+        String format = "%-" + nameWidth + "s  %-7s  %5s  %12s  %10s  %s%n";
+
+        System.out.printf(format, "Script", "Lang", "Exit", "Compile (ms)", "Run (ms)", "Log");
+        for (ScriptJob job : jobList) {
+            RunStats stats = job.handle == null ? null : job.handle.getRunner().getLastRunStats();
+            if (stats == null) {
+                System.out.printf(format, job.script, job.language, "-", "-", "-",
+                        job.failure != null ? job.failure : job.log);
+                continue;
+            }
+            String compile = stats.isCacheHit() ? "cached" : String.valueOf(stats.getCompileMillis());
+            System.out.printf(format, job.script, job.language, stats.getExitCode(), compile,
+                    stats.getRunMillis(), job.failure != null ? job.failure : job.log);
+        }
+    }
+
+    /**
+     * Writes the statistics of every script that ran to run-stats.csv in the log directory.
+     */
+    private void writeStatsCsv(List<ScriptJob> jobList) {
+        List<String> rows = new ArrayList<>();
+        rows.add("script,language," + RunStats.CSV_HEADER);
+        for (ScriptJob job : jobList) {
+            RunStats stats = job.handle == null ? null : job.handle.getRunner().getLastRunStats();
+            if (stats != null) {
+                rows.add(RunStats.csvField(job.script.toString()) + "," + job.language + "," + stats.toCsv());
+            }
+        }
+        Path csv = logDirectory.resolve("run-stats.csv");
+        try {
+            Files.write(csv, rows, StandardCharsets.UTF_8);
+            System.out.println("Run statistics written to " + csv);
+        } catch (IOException e) {
+            System.err.println("Could not write " + csv + ": " + e.getMessage());
+        }
+    }
+}
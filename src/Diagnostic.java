@@ -0,0 +1,99 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A compiler message attached to a position in the script, with the notes the compiler printed after it.
+ */
+public class Diagnostic {
+    public enum Severity {
+        ERROR,
+        WARNING,
+        NOTE
+    }
+
+    private final Severity severity;
+    private final String file;
+    private final int line;
+    private final int column;
+    private final String message;
+    private List<Diagnostic> notes = Collections.emptyList();
+
+    public Diagnostic(Severity severity, String file, int line, int column, String message) {
+        this.severity = severity;
+        this.file = file;
+        this.line = line;
+        this.column = column;
+        this.message = message;
+    }
+
+    /**
+     * Parses a {@code file:line:column: error: message} line, or returns null if the line is not a diagnostic.
+     */
+    public static Diagnostic parse(String text) {
+        ErrorParser.Location location = ErrorParser.parseLocation(text);
+        return location == null ? null : fromLocation(location);
+    }
+
+    public static Diagnostic fromLocation(ErrorParser.Location location) {
+        Severity severity;
+        switch (location.getKind()) {
+            case "error":
+                severity = Severity.ERROR;
+                break;
+            case "warning":
+                severity = Severity.WARNING;
+                break;
+            default:
+                severity = Severity.NOTE;
+                break;
+        }
+        return new Diagnostic(severity, location.getFile(), location.getLine(), location.getColumn(),
+                location.getMessage());
+    }
+
+    void addNote(Diagnostic note) {
+        if (notes.isEmpty()) {
+            notes = new ArrayList<>(2);
+        }
+        notes.add(note);
+    }
+
+    public Severity getSeverity() {
+        return severity;
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public List<Diagnostic> getNotes() {
+        return Collections.unmodifiableList(notes);
+    }
+
+    /**
+     * Returns the message followed by its notes, for tooltips and the status bar.
+     */
+    public String describe() {
+        if (notes.isEmpty()) {
+            return message;
+        }
+        StringBuilder text = new StringBuilder(message);
+        for (Diagnostic note : notes) {
+            text.append("; note: ").append(note.getMessage());
+        }
+        return text.toString();
+    }
+}
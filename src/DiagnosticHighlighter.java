@@ -0,0 +1,128 @@
+import Highlighters.LineIndex;
+
+import javax.swing.text.*;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Underlines diagnostics in a text component with a wavy line, red for errors and orange for warnings.
+ * Highlights are anchored to document positions, so they follow edits until the next check replaces them.
+ */
+public class DiagnosticHighlighter {
+    static final Color ERROR_COLOUR = new Color(255, 80, 80);
+    static final Color WARNING_COLOUR = new Color(230, 160, 40);
+
+    private final JTextComponent editor;
+    private final LineIndex lines;
+    private final Segment lineText = new Segment();
+    private final List<Object> tags = new ArrayList<>();
+    private final List<Diagnostic> shown = new ArrayList<>();
+
+    public DiagnosticHighlighter(JTextComponent editor, LineIndex lines) {
+        this.editor = editor;
+        this.lines = lines;
+    }
+
+    /**
+     * Replaces the underlined diagnostics. Each one covers the word at its column, or one character if
+     * there is no word there.
+     */
+    public void setDiagnostics(List<Diagnostic> diagnostics) {
+        clear();
+        addDiagnostics(diagnostics);
+    }
+
+    /**
+     * Underlines more diagnostics, keeping those already underlined.
+     */
+    public void addDiagnostics(List<Diagnostic> diagnostics) {
+        Document doc = editor.getDocument();
+        for (Diagnostic diagnostic : diagnostics) {
+            int lineIndex = diagnostic.getLine() - 1;
+            if (lineIndex < 0 || lineIndex >= lines.getLineCount()) {
+                continue;
+            }
+            int lineStart = lines.lineStart(lineIndex);
+            int lineEnd = Math.min(lines.lineEnd(lineIndex), doc.getLength());
+            int start = Math.min(lineStart + Math.max(0, diagnostic.getColumn() - 1), lineEnd);
+            try {
+                doc.getText(lineStart, lineEnd - lineStart, lineText);
+                int end = start;
+                while (end < lineEnd && Character.isJavaIdentifierPart(lineText.charAt(end - lineStart))) {
+                    end++;
+                }
+                if (end == start) {
+                    if (start == lineEnd && start > lineStart) {
+                        start--;
+                    }
+                    end = Math.min(start + 1, Math.max(lineEnd, start));
+                }
+                if (end <= start) {
+                    continue;
+                }
+                Color colour = diagnostic.getSeverity() == Diagnostic.Severity.ERROR ? ERROR_COLOUR : WARNING_COLOUR;
+                tags.add(editor.getHighlighter().addHighlight(start, end, new SquigglePainter(colour)));
+                shown.add(diagnostic);
+            } catch (BadLocationException e) {
+                System.err.println("Could not underline diagnostic: " + e.getMessage());
+            }
+        }
+    }
+
+    public void clear() {
+        for (Object tag : tags) {
+            editor.getHighlighter().removeHighlight(tag);
+        }
+        tags.clear();
+        shown.clear();
+    }
+
+    /**
+     * Returns the message and notes of the diagnostic underlined at the given offset, or null.
+     */
+    public String messageAt(int offset) {
+        for (int i = 0; i < tags.size(); i++) {
+            if (tags.get(i) instanceof Highlighter.Highlight) {
+                Highlighter.Highlight highlight = (Highlighter.Highlight) tags.get(i);
+                if (offset >= highlight.getStartOffset() && offset < highlight.getEndOffset()) {
+                    return shown.get(i).describe();
+                }
+            }
+        }
+        return null;
+    }
+
+    private static class SquigglePainter extends LayeredHighlighter.LayerPainter {
+        private final Color colour;
+
+        SquigglePainter(Color colour) {
+            this.colour = colour;
+        }
+
+        @Override
+        public void paint(Graphics g, int p0, int p1, Shape bounds, JTextComponent c) {
+        }
+
+        @Override
+        public Shape paintLayer(Graphics g, int offs0, int offs1, Shape bounds, JTextComponent c, View view) {
+            Rectangle area;
+            try {
+                Shape shape = view.modelToView(offs0, Position.Bias.Forward, offs1, Position.Bias.Backward, bounds);
+                area = shape instanceof Rectangle ? (Rectangle) shape : shape.getBounds();
+            } catch (BadLocationException e) {
+                return null;
+            }
+            g.setColor(colour);
+            int y = area.y + area.height - 2;
+            for (int x = area.x; x < area.x + area.width; x += 4) {
+                int end = Math.min(x + 4, area.x + area.width);
+                g.drawLine(x, y, x + 2, y - 2);
+                if (x + 2 < end) {
+                    g.drawLine(x + 2, y - 2, end, y);
+                }
+            }
+            return area;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The diagnostics of one compile or run, indexed both by the output lines they were printed on and by
+ * the script lines they refer to.
+ * <p>
+ * A note is attached to the error or warning printed shortly before it, and that diagnostic's output range
+ * grows to cover the note. Not thread-safe; fill it on one thread and hand it over.
+ */
+public class Diagnostics {
+    private static final int MAX_DIAGNOSTICS = 10000;
+    /** How many output lines after a diagnostic a note may appear and still belong to it. */
+    private static final int NOTE_DISTANCE = 16;
+
+    private final List<Diagnostic> all = new ArrayList<>();
+    private final IntervalIndex<Diagnostic> byOutputLine = new IntervalIndex<>();
+    private final IntervalIndex<Diagnostic> byScriptLine = new IntervalIndex<>();
+    private Diagnostic last;
+    private long lastStart = -1;
+    private long lastEnd = -1;
+
+    /**
+     * Builds the diagnostics of compiler messages, using each message's index as its output line.
+     */
+    public static Diagnostics parse(List<String> lines) {
+        Diagnostics diagnostics = new Diagnostics();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (line.indexOf(':') < 0) {
+                continue;
+            }
+            ErrorParser.Location location = ErrorParser.parseLocation(line);
+            if (location != null) {
+                diagnostics.add(i, location);
+            }
+        }
+        return diagnostics;
+    }
+
+    /**
+     * Records the location found on an output line. Returns true if the model changed.
+     */
+    public boolean add(long outputLine, ErrorParser.Location location) {
+        Diagnostic diagnostic = Diagnostic.fromLocation(location);
+        if (diagnostic.getSeverity() == Diagnostic.Severity.NOTE && last != null
+                && outputLine - lastEnd <= NOTE_DISTANCE) {
+            last.addNote(diagnostic);
+            lastEnd = outputLine;
+            byOutputLine.setEnd(lastStart, last, outputLine);
+            return true;
+        }
+        if (all.size() >= MAX_DIAGNOSTICS) {
+            return false;
+        }
+        all.add(diagnostic);
+        byOutputLine.add(outputLine, outputLine, diagnostic);
+        byScriptLine.add(diagnostic.getLine(), diagnostic.getLine(), diagnostic);
+        last = diagnostic;
+        lastStart = outputLine;
+        lastEnd = outputLine;
+        return true;
+    }
+
+    /**
+     * Returns the errors and warnings in the order they were printed; notes are reachable through them.
+     */
+    public List<Diagnostic> getAll() {
+        return Collections.unmodifiableList(all);
+    }
+
+    public List<Diagnostic> atOutputLine(long outputLine) {
+        return byOutputLine.at(outputLine);
+    }
+
+    /**
+     * Returns the diagnostics on a 1-based script line.
+     */
+    public List<Diagnostic> atScriptLine(int line) {
+        return byScriptLine.at(line);
+    }
+
+    public List<Diagnostic> betweenScriptLines(int first, int last) {
+        return byScriptLine.overlapping(first, last);
+    }
+
+    /**
+     * Returns the first diagnostic on a script line after the given one, wrapping around to the first.
+     */
+    public Diagnostic next(int line) {
+        Diagnostic next = byScriptLine.next(line);
+        return next != null ? next : byScriptLine.first();
+    }
+
+    /**
+     * Returns the first diagnostic on a script line before the given one, wrapping around to the last.
+     */
+    public Diagnostic previous(int line) {
+        Diagnostic previous = byScriptLine.previous(line);
+        return previous != null ? previous : byScriptLine.last();
+    }
+
+    public boolean isEmpty() {
+        return all.isEmpty();
+    }
+
+    public void clear() {
+        all.clear();
+        byOutputLine.clear();
+        byScriptLine.clear();
+        last = null;
+        lastStart = -1;
+        lastEnd = -1;
+    }
+}
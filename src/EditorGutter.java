@@ -0,0 +1,137 @@
+import Highlighters.LineIndex;
+
+import javax.swing.*;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.JTextComponent;
+import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.geom.Rectangle2D;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A strip beside the editor with line numbers and a marker on every line that has a diagnostic. Only the
+ * lines in the clip are looked up, through the editor's {@link LineIndex}, so painting cost does not grow
+ * with the size of the document or the number of diagnostics.
+ */
+public class EditorGutter extends JComponent {
+    private static final int MARKER_WIDTH = 14;
+    private static final int MARKER_SIZE = 8;
+    private static final int NUMBER_PADDING = 6;
+
+    private final JTextComponent editor;
+    private final LineIndex lines;
+    private final Consumer<Diagnostic> clickHandler;
+    private Diagnostics diagnostics = new Diagnostics();
+    private int digits;
+
+    public EditorGutter(JTextComponent editor, LineIndex lines, Consumer<Diagnostic> clickHandler) {
+        this.editor = editor;
+        this.lines = lines;
+        this.clickHandler = clickHandler;
+        setOpaque(true);
+        setFont(editor.getFont());
+        digits = String.valueOf(lines.getLineCount()).length();
+        ToolTipManager.sharedInstance().registerComponent(this);
+
+        editor.addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                digits = String.valueOf(lines.getLineCount()).length();
+                revalidate();
+                repaint();
+            }
+        });
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                List<Diagnostic> hit = diagnostics.atScriptLine(lineAt(e.getY()));
+                if (!hit.isEmpty() && clickHandler != null) {
+                    clickHandler.accept(hit.get(0));
+                }
+            }
+        });
+    }
+
+    public void setDiagnostics(Diagnostics diagnostics) {
+        this.diagnostics = diagnostics;
+        repaint();
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        int numberWidth = getFontMetrics(getFont()).charWidth('0') * Math.max(2, digits);
+        return new Dimension(MARKER_WIDTH + numberWidth + NUMBER_PADDING, editor.getPreferredSize().height);
+    }
+
+    @Override
+    public String getToolTipText(MouseEvent e) {
+        List<Diagnostic> hit = diagnostics.atScriptLine(lineAt(e.getY()));
+        if (hit.isEmpty()) {
+            return null;
+        }
+        StringBuilder text = new StringBuilder(hit.get(0).describe());
+        for (int i = 1; i < hit.size(); i++) {
+            text.append(" | ").append(hit.get(i).describe());
+        }
+        return text.toString();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Rectangle clip = g.getClipBounds();
+        g.setColor(getBackground());
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+        Graphics2D g2d = (Graphics2D) g.create();
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        FontMetrics metrics = g2d.getFontMetrics(getFont());
+        int firstLine = lineAt(clip.y);
+        int lastLine = lineAt(clip.y + clip.height);
+        int numberRight = getWidth() - NUMBER_PADDING;
+        try {
+            g2d.setColor(getForeground());
+            for (int line = firstLine; line <= lastLine; line++) {
+                Rectangle2D bounds = lineBounds(line);
+                if (bounds == null) {
+                    continue;
+                }
+                String number = Integer.toString(line);
+                int baseline = (int) bounds.getY() + metrics.getAscent();
+                g2d.drawString(number, numberRight - metrics.stringWidth(number), baseline);
+            }
+
+            for (Diagnostic diagnostic : diagnostics.betweenScriptLines(firstLine, lastLine)) {
+                if (diagnostic.getLine() < 1 || diagnostic.getLine() > lines.getLineCount()) {
+                    continue;
+                }
+                Rectangle2D bounds = lineBounds(diagnostic.getLine());
+                if (bounds == null) {
+                    continue;
+                }
+                int y = (int) (bounds.getY() + (bounds.getHeight() - MARKER_SIZE) / 2);
+                boolean error = diagnostic.getSeverity() == Diagnostic.Severity.ERROR;
+                g2d.setColor(error ? DiagnosticHighlighter.ERROR_COLOUR : DiagnosticHighlighter.WARNING_COLOUR);
+                g2d.fillOval((MARKER_WIDTH - MARKER_SIZE) / 2, y, MARKER_SIZE, MARKER_SIZE);
+            }
+        } catch (BadLocationException e) {
+            System.err.println("Could not paint gutter: " + e.getMessage());
+        }
+        g2d.dispose();
+    }
+
+    private Rectangle2D lineBounds(int line) throws BadLocationException {
+        return editor.modelToView2D(lines.lineStart(line - 1));
+    }
+
+    /**
+     * Returns the 1-based script line at a y coordinate, which the gutter shares with the editor.
+     */
+    private int lineAt(int y) {
+        int offset = editor.viewToModel2D(new Point(0, y));
+        return lines.lineOf(Math.max(0, offset)) + 1;
+    }
+}
@@ -1,19 +1,29 @@
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
+/**
+ * Finds compiler locations of the form {@code file:line:column: error|warning|note: message} in output lines.
+ * <p>
+ * The scan is a single left-to-right pass over the line: only the text after each ':' is examined, and the
+ * file name is recovered by walking back from the first ':' of a match, so cost is linear in the line length.
+ */
 public class ErrorParser {
-    private static final Pattern ERROR_LOCATION_PATTERN =
-            Pattern.compile("(?:.*?[/\\\\])?[^:]+:(\\d+):(\\d+):\\s*(?:error|warning)");
+    private static final String[] KINDS = {"error", "warning", "note"};
 
     public static class Location {
         private final int line;
         private final int column;
         private final String fullMatch;
+        private final int start;
+        private final String file;
+        private final String kind;
+        private final String message;
 
-        public Location(int line, int column, String fullMatch) {
+        public Location(int line, int column, String fullMatch, int start, String file, String kind, String message) {
             this.line = line;
             this.column = column;
             this.fullMatch = fullMatch;
+            this.start = start;
+            this.file = file;
+            this.kind = kind;
+            this.message = message;
         }
 
         public int getLine() {
@@ -24,22 +34,127 @@ public class ErrorParser {
             return column;
         }
 
+        /**
+         * The text from the start of the file name to the end of the kind, e.g. {@code main.swift:3:5: error}.
+         */
         public String getFullMatch() {
             return fullMatch;
         }
+
+        /**
+         * The offset of {@link #getFullMatch()} in the scanned line.
+         */
+        public int getStart() {
+            return start;
+        }
+
+        public String getFile() {
+            return file;
+        }
+
+        /**
+         * One of {@code error}, {@code warning} or {@code note}.
+         */
+        public String getKind() {
+            return kind;
+        }
+
+        public String getMessage() {
+            return message;
+        }
     }
 
-     public static Location parseLocation(String line) {
-        Matcher matcher = ERROR_LOCATION_PATTERN.matcher(line);
-        if (matcher.find()) {
-            try {
-                int lineNumber = Integer.parseInt(matcher.group(1));
-                int columnNumber = Integer.parseInt(matcher.group(2));
-                return new Location(lineNumber, columnNumber, matcher.group(0));
-            } catch (NumberFormatException e) {
-                return null;
+    public static Location parseLocation(String line) {
+        int colon = line.indexOf(':');
+        while (colon >= 0) {
+            Location location = matchAt(line, colon);
+            if (location != null) {
+                return location;
             }
+            colon = line.indexOf(':', colon + 1);
         }
         return null;
     }
-}
\ No newline at end of file
+
+    /**
+     * Tries to match {@code :line:column: kind} starting at the colon, with a file name before it.
+     */
+    private static Location matchAt(String text, int colon) {
+        int length = text.length();
+        int i = colon + 1;
+        int lineStart = i;
+        while (i < length && isDigit(text.charAt(i))) {
+            i++;
+        }
+        if (i == lineStart || i >= length || text.charAt(i) != ':') {
+            return null;
+        }
+        int lineEnd = i++;
+        int columnStart = i;
+        while (i < length && isDigit(text.charAt(i))) {
+            i++;
+        }
+        if (i == columnStart || i >= length || text.charAt(i) != ':') {
+            return null;
+        }
+        int columnEnd = i++;
+        while (i < length && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        String kind = null;
+        for (String candidate : KINDS) {
+            if (text.startsWith(candidate, i)) {
+                kind = candidate;
+                break;
+            }
+        }
+        if (kind == null) {
+            return null;
+        }
+        int kindEnd = i + kind.length();
+
+        int fileStart = fileStart(text, colon);
+        if (fileStart < 0) {
+            return null;
+        }
+        int lineNumber;
+        int columnNumber;
+        try {
+            lineNumber = Integer.parseInt(text, lineStart, lineEnd, 10);
+            columnNumber = Integer.parseInt(text, columnStart, columnEnd, 10);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+
+        int messageStart = kindEnd;
+        if (messageStart < length && text.charAt(messageStart) == ':') {
+            messageStart++;
+        }
+        return new Location(lineNumber, columnNumber, text.substring(fileStart, kindEnd), fileStart,
+                text.substring(fileStart, colon), kind, text.substring(messageStart).trim());
+    }
+
+    /**
+     * Returns where the file name ending at the colon starts, or -1 if there is none. The name runs back to
+     * the previous ':' or the start of the line, without leading whitespace, and keeps a Windows drive letter.
+     */
+    private static int fileStart(String text, int colon) {
+        int start = colon;
+        while (start > 0 && text.charAt(start - 1) != ':') {
+            start--;
+        }
+        if (start >= 2 && Character.isLetter(text.charAt(start - 2))
+                && (start == 2 || Character.isWhitespace(text.charAt(start - 3)))
+                && start < colon && (text.charAt(start) == '\\' || text.charAt(start) == '/')) {
+            start -= 2;
+        }
+        while (start < colon && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        return start < colon ? start : -1;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,309 @@
+package Highlighters;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.StyledDocument;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Re-highlights only the lines touched by edits to one document, off the Event Dispatch Thread.
+ * <p>
+ * The lexer state at the start of every line is cached, so a pass starts at the first damaged line
+ * and stops as soon as a line ends in the same state the cache already holds for the next one.
+ * Bursts of edits are coalesced by a short debounce; each pass lexes a text snapshot on a background
+ * thread and its style runs are applied on the EDT only if no edit has happened since the snapshot.
+ * A snapshot covers the damage plus a bounded look-ahead; if the states have not converged by its end,
+ * the next pass continues from there, so no pass copies more of a large document than it needs.
+ * All highlighters lex on one shared background thread, and a paused highlighter only records damage
+ * until it is resumed, so documents that are not on screen cost no highlighting work.
+ */
+public class IncrementalHighlighter {
+    private static final int UNKNOWN_STATE = -1;
+    private static final int DEBOUNCE_MS = 40;
+    private static final int LOOKAHEAD_LINES = 2000;
+    private static final ExecutorService LEX_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "highlight-lexer");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    });
+
+    private final StyledDocument doc;
+    private final LineIndex lines;
+    private final Timer debounceTimer;
+    private ScriptHighlighter highlighter;
+    private boolean paused = false;
+
+    private int[] lineStates = new int[256];
+    private int lineCount = 0;
+
+    private int damageStart = -1;
+    private int damageEnd = -1;
+
+    private volatile long version = 0;
+    private Future<?> inFlight;
+
+    /**
+     * Text and cache state captured on the EDT for one pass.
+     */
+    private static class Snapshot {
+        long version;
+        ScriptLexer lexer;
+        String text;
+        int baseOffset;
+        int firstLine;
+        int startState;
+        int damageEnd;
+        int lineCount;
+        int[] cachedStates;
+        boolean truncated;
+    }
+
+    /**
+     * Style runs and new line states produced by one pass, covering [baseOffset, endOffset).
+     */
+    private static class PassResult {
+        long version;
+        int baseOffset;
+        int endOffset;
+        int firstLine;
+        int[] newStates;
+        int newStateCount;
+        StyleRuns runs;
+        int continueLine = -1;
+    }
+
+    public IncrementalHighlighter(StyledDocument doc, LineIndex lines) {
+        this.doc = doc;
+        this.lines = lines;
+        debounceTimer = new Timer(DEBOUNCE_MS, e -> startPass());
+        debounceTimer.setRepeats(false);
+    }
+
+    public void setHighlighter(ScriptHighlighter highlighter) {
+        this.highlighter = highlighter;
+        invalidateAll();
+    }
+
+    public void invalidateAll() {
+        lineCount = lines.getLineCount();
+        ensureCapacity(lineCount);
+        Arrays.fill(lineStates, 0, lineCount, UNKNOWN_STATE);
+        lineStates[0] = ScriptLexer.STATE_NORMAL;
+        damageStart = 0;
+        damageEnd = lineCount - 1;
+        version++;
+    }
+
+    /**
+     * Records an insert or remove and shifts the cached line states to match. Must be called on the EDT
+     * for every such event, in order, after the {@link LineIndex} has been updated.
+     */
+    public void markDamaged(DocumentEvent event) {
+        int newLineCount = lines.getLineCount();
+        int delta = newLineCount - lineCount;
+        int line = lines.lineOf(event.getOffset());
+
+        if (delta > 0) {
+            ensureCapacity(newLineCount);
+            System.arraycopy(lineStates, line + 1, lineStates, line + 1 + delta, lineCount - line - 1);
+            Arrays.fill(lineStates, line + 1, line + 1 + delta, UNKNOWN_STATE);
+        } else if (delta < 0) {
+            System.arraycopy(lineStates, line + 1 - delta, lineStates, line + 1, newLineCount - line - 1);
+        }
+        lineCount = newLineCount;
+
+        if (damageStart < 0) {
+            damageStart = line;
+            damageEnd = line + Math.max(delta, 0);
+        } else {
+            if (damageEnd > line) {
+                damageEnd = Math.max(line, damageEnd + delta);
+            }
+            damageStart = Math.min(damageStart, line);
+            damageEnd = Math.max(damageEnd, line + Math.max(delta, 0));
+        }
+        damageEnd = Math.min(damageEnd, lineCount - 1);
+        version++;
+    }
+
+    /**
+     * Schedules a background pass once edits have paused, cancelling any pass lexing an older snapshot.
+     */
+    public void schedule() {
+        cancelPass();
+        if (!paused) {
+            debounceTimer.restart();
+        }
+    }
+
+    /**
+     * Stops or resumes highlighting. While paused, edits are still recorded as damage, and resuming
+     * schedules a pass over all of it.
+     */
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+        if (paused) {
+            debounceTimer.stop();
+            cancelPass();
+        } else if (damageStart >= 0) {
+            schedule();
+        }
+    }
+
+    /**
+     * Lexes and applies the pending damage synchronously on the calling thread.
+     */
+    public void highlightDamaged() {
+        Snapshot snapshot = takeSnapshot();
+        while (snapshot != null && apply(lex(snapshot))) {
+            snapshot = takeSnapshot();
+        }
+    }
+
+    public void dispose() {
+        paused = true;
+        debounceTimer.stop();
+        cancelPass();
+    }
+
+    private void cancelPass() {
+        if (inFlight != null) {
+            inFlight.cancel(true);
+            inFlight = null;
+        }
+    }
+
+    private void startPass() {
+        Snapshot snapshot = paused ? null : takeSnapshot();
+        if (snapshot == null) {
+            return;
+        }
+        inFlight = LEX_EXECUTOR.submit(() -> {
+            PassResult result = lex(snapshot);
+            if (result != null) {
+                SwingUtilities.invokeLater(() -> {
+                    if (apply(result)) {
+                        startPass();
+                    }
+                });
+            }
+        });
+    }
+
+    private Snapshot takeSnapshot() {
+        if (damageStart < 0 || highlighter == null) {
+            return null;
+        }
+        int line = damageStart;
+        while (line > 0 && lineStates[line] == UNKNOWN_STATE) {
+            line--;
+        }
+
+        Snapshot snapshot = new Snapshot();
+        snapshot.version = version;
+        snapshot.lexer = highlighter.getLexer();
+        snapshot.firstLine = line;
+        snapshot.startState = lineStates[line];
+        snapshot.damageEnd = damageEnd;
+        snapshot.lineCount = lineCount;
+        snapshot.cachedStates = Arrays.copyOf(lineStates, lineCount);
+        snapshot.baseOffset = lines.lineStart(line);
+        int windowEnd = doc.getLength();
+        int lastLine = damageEnd + LOOKAHEAD_LINES;
+        if (lastLine < lineCount - 1) {
+            windowEnd = lines.lineStart(lastLine + 1);
+            snapshot.truncated = true;
+        }
+        try {
+            snapshot.text = doc.getText(snapshot.baseOffset, windowEnd - snapshot.baseOffset);
+        } catch (BadLocationException e) {
+            e.printStackTrace();
+            return null;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Lexes a snapshot until the line states converge. Returns null if a newer edit made it stale.
+     */
+    private PassResult lex(Snapshot snapshot) {
+        PassResult result = new PassResult();
+        result.version = snapshot.version;
+        result.baseOffset = snapshot.baseOffset;
+        result.firstLine = snapshot.firstLine;
+        result.newStates = new int[64];
+        result.runs = new StyleRuns();
+
+        String text = snapshot.text;
+        int line = snapshot.firstLine;
+        int state = snapshot.startState;
+        int pos = 0;
+        result.endOffset = snapshot.baseOffset + text.length();
+
+        while (true) {
+            if (snapshot.version != version || Thread.currentThread().isInterrupted()) {
+                return null;
+            }
+            int newline = text.indexOf('\n', pos);
+            int end = newline < 0 ? text.length() : newline;
+            state = snapshot.lexer.lexLine(text, pos, end, state, snapshot.baseOffset + pos, result.runs);
+
+            line++;
+            pos = end + 1;
+            if (newline < 0 || line >= snapshot.lineCount) {
+                break;
+            }
+            if (line > snapshot.damageEnd && snapshot.cachedStates[line] == state) {
+                result.endOffset = snapshot.baseOffset + pos;
+                break;
+            }
+            if (result.newStateCount == result.newStates.length) {
+                result.newStates = Arrays.copyOf(result.newStates, result.newStateCount * 2);
+            }
+            result.newStates[result.newStateCount++] = state;
+            if (snapshot.truncated && pos >= text.length()) {
+                result.endOffset = snapshot.baseOffset + pos;
+                result.continueLine = line;
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Applies a pass if it is still current. Returns true if it stopped at the end of a truncated
+     * snapshot and another pass should continue from there.
+     */
+    private boolean apply(PassResult result) {
+        if (result == null || result.version != version) {
+            return false;
+        }
+        doc.setCharacterAttributes(
+                result.baseOffset,
+                result.endOffset - result.baseOffset,
+                highlighter.styleFor((byte) 0),
+                true
+        );
+        highlighter.applyRuns(doc, result.runs);
+        System.arraycopy(result.newStates, 0, lineStates, result.firstLine + 1, result.newStateCount);
+        if (result.continueLine >= 0) {
+            damageStart = result.continueLine;
+            damageEnd = result.continueLine;
+            return true;
+        }
+        damageStart = -1;
+        damageEnd = -1;
+        return false;
+    }
+
+    private void ensureCapacity(int lines) {
+        if (lines > lineStates.length) {
+            lineStates = Arrays.copyOf(lineStates, Math.max(lines, lineStates.length * 2));
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package Highlighters;
 
 import java.awt.Color;
-import java.util.regex.Pattern;
 
 public class KotlinHighlighter extends ScriptHighlighter {
 
@@ -41,9 +40,4 @@ public class KotlinHighlighter extends ScriptHighlighter {
     protected String[] getDeclarations() {
         return DECLARATIONS;
     }
-
-    @Override
-    protected Pattern getStringPattern() {
-        return Pattern.compile("\"([^\"]|\\\\\")*\"|\"\"\".*?\"\"\"|'[^']*'", Pattern.DOTALL);
-    }
 }
\ No newline at end of file
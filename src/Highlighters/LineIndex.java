@@ -0,0 +1,284 @@
+package Highlighters;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
+import java.util.Arrays;
+
+/**
+ * Line start offsets of a document, kept up to date from its edit events without copying its text.
+ * <p>
+ * Line lengths are kept in order in a treap whose nodes also hold the size and total length of their
+ * subtree, so inserting or removing lines, resizing a line, and finding a line's start or the line at an
+ * offset all take O(log n) expected, wherever the edit is. Nodes live in parallel primitive arrays and are
+ * reused through a free list. Lines are 0-based; every line but the last includes its newline, and the
+ * last includes the document's implicit end mark, as Swing's paragraph elements do.
+ */
+public class LineIndex {
+    /** Index of the empty tree. Its size and total length stay 0. */
+    private static final int NIL = 0;
+
+    private final Document doc;
+    private int[] left = new int[16];
+    private int[] right = new int[16];
+    private int[] priority = new int[16];
+    private int[] size = new int[16];
+    private int[] length = new int[16];
+    private int[] sum = new int[16];
+    private int root = NIL;
+    private int nextNode = 1;
+    private int freeList = NIL;
+    private int seed = 0x2545F491;
+
+    private int splitLeft;
+    private int splitRight;
+
+    public LineIndex(Document doc) {
+        this.doc = doc;
+        Element rootElement = doc.getDefaultRootElement();
+        for (int i = 0; i < rootElement.getElementCount(); i++) {
+            Element line = rootElement.getElement(i);
+            root = merge(root, newNode(line.getEndOffset() - line.getStartOffset()));
+        }
+    }
+
+    /**
+     * Applies an insert or remove. Must be called on the EDT for every such event, in order, before
+     * anything reads the index for the new text.
+     */
+    public void update(DocumentEvent event) {
+        if (event.getType() == DocumentEvent.EventType.CHANGE) {
+            return;
+        }
+        Element rootElement = doc.getDefaultRootElement();
+        int from = rootElement.getElementIndex(event.getOffset());
+        int to = event.getType() == DocumentEvent.EventType.INSERT
+                ? rootElement.getElementIndex(event.getOffset() + event.getLength())
+                : from;
+
+        DocumentEvent.ElementChange change = event.getChange(rootElement);
+        if (change != null) {
+            int first = change.getIndex();
+            int removed = change.getChildrenRemoved().length;
+            int added = change.getChildrenAdded().length;
+            split(root, first);
+            int head = splitLeft;
+            split(splitRight, removed);
+            release(splitLeft);
+            int tail = splitRight;
+            int middle = NIL;
+            for (int i = 0; i < added; i++) {
+                middle = merge(middle, newNode(0));
+            }
+            root = merge(merge(head, middle), tail);
+            from = Math.min(from, first);
+            to = Math.max(to, first + added - 1);
+        }
+
+        // Lines next to a structural change can be resized in place rather than replaced, so the lengths
+        // of every line the edit touched are read back from the paragraph elements.
+        for (int line = from; line <= to; line++) {
+            Element element = rootElement.getElement(line);
+            setLength(line, element.getEndOffset() - element.getStartOffset());
+        }
+    }
+
+    public int getLineCount() {
+        return size[root];
+    }
+
+    public int lineStart(int line) {
+        int node = root;
+        int start = 0;
+        while (node != NIL) {
+            int leftSize = size[left[node]];
+            if (line < leftSize) {
+                node = left[node];
+                continue;
+            }
+            start += sum[left[node]];
+            if (line == leftSize) {
+                return start;
+            }
+            start += length[node];
+            line -= leftSize + 1;
+            node = right[node];
+        }
+        return start;
+    }
+
+    /**
+     * Returns the offset just past the line's text, before its newline.
+     */
+    public int lineEnd(int line) {
+        return lineStart(line) + lengthOf(line) - 1;
+    }
+
+    /**
+     * Returns the line containing the offset; offsets past the end map to the last line.
+     */
+    public int lineOf(int offset) {
+        if (offset <= 0) {
+            return 0;
+        }
+        int node = root;
+        int line = 0;
+        while (node != NIL) {
+            int leftSum = sum[left[node]];
+            if (offset < leftSum) {
+                node = left[node];
+                continue;
+            }
+            offset -= leftSum;
+            line += size[left[node]];
+            if (offset < length[node]) {
+                return line;
+            }
+            offset -= length[node];
+            line++;
+            node = right[node];
+        }
+        return Math.max(0, size[root] - 1);
+    }
+
+    /**
+     * Returns the offset of a 0-based line and column, clamping both to the document.
+     */
+    public int offsetOf(int line, int column) {
+        line = Math.max(0, Math.min(line, size[root] - 1));
+        int start = lineStart(line);
+        return start + Math.max(0, Math.min(column, lengthOf(line) - 1));
+    }
+
+    private int lengthOf(int line) {
+        int node = findNode(line);
+        return node == NIL ? 0 : length[node];
+    }
+
+    private int findNode(int line) {
+        int node = root;
+        while (node != NIL) {
+            int leftSize = size[left[node]];
+            if (line < leftSize) {
+                node = left[node];
+            } else if (line == leftSize) {
+                return node;
+            } else {
+                line -= leftSize + 1;
+                node = right[node];
+            }
+        }
+        return NIL;
+    }
+
+    /**
+     * Changes a line's length, adjusting the totals on the path from the root.
+     */
+    private void setLength(int line, int newLength) {
+        int target = findNode(line);
+        if (target == NIL) {
+            return;
+        }
+        int delta = newLength - length[target];
+        int node = root;
+        while (node != target) {
+            sum[node] += delta;
+            int leftSize = size[left[node]];
+            if (line < leftSize) {
+                node = left[node];
+            } else {
+                line -= leftSize + 1;
+                node = right[node];
+            }
+        }
+        sum[target] += delta;
+        length[target] = newLength;
+    }
+
+    /**
+     * Splits {@code node} into its first {@code count} lines, left in {@link #splitLeft}, and the rest,
+     * left in {@link #splitRight}.
+     */
+    private void split(int node, int count) {
+        if (node == NIL) {
+            splitLeft = NIL;
+            splitRight = NIL;
+            return;
+        }
+        if (size[left[node]] >= count) {
+            split(left[node], count);
+            left[node] = splitRight;
+            pull(node);
+            splitRight = node;
+        } else {
+            split(right[node], count - size[left[node]] - 1);
+            right[node] = splitLeft;
+            pull(node);
+            splitLeft = node;
+        }
+    }
+
+    private int merge(int a, int b) {
+        if (a == NIL) {
+            return b;
+        }
+        if (b == NIL) {
+            return a;
+        }
+        if (priority[a] > priority[b]) {
+            right[a] = merge(right[a], b);
+            pull(a);
+            return a;
+        }
+        left[b] = merge(a, left[b]);
+        pull(b);
+        return b;
+    }
+
+    private void pull(int node) {
+        size[node] = size[left[node]] + 1 + size[right[node]];
+        sum[node] = sum[left[node]] + length[node] + sum[right[node]];
+    }
+
+    private int newNode(int lineLength) {
+        int node;
+        if (freeList != NIL) {
+            node = freeList;
+            freeList = left[node];
+        } else {
+            if (nextNode == left.length) {
+                int capacity = left.length * 2;
+                left = Arrays.copyOf(left, capacity);
+                right = Arrays.copyOf(right, capacity);
+                priority = Arrays.copyOf(priority, capacity);
+                size = Arrays.copyOf(size, capacity);
+                length = Arrays.copyOf(length, capacity);
+                sum = Arrays.copyOf(sum, capacity);
+            }
+            node = nextNode++;
+        }
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        left[node] = NIL;
+        right[node] = NIL;
+        priority[node] = seed;
+        size[node] = 1;
+        length[node] = lineLength;
+        sum[node] = lineLength;
+        return node;
+    }
+
+    /**
+     * Returns every node of a removed subtree to the free list.
+     */
+    private void release(int node) {
+        if (node == NIL) {
+            return;
+        }
+        release(left[node]);
+        release(right[node]);
+        left[node] = freeList;
+        freeList = node;
+    }
+}
@@ -2,7 +2,6 @@ package Highlighters;
 
 import javax.swing.text.*;
 import java.awt.Color;
-import java.util.regex.*;
 
 public abstract class ScriptHighlighter {
     protected final StyleContext styleContext;
@@ -53,109 +52,70 @@ public abstract class ScriptHighlighter {
     protected abstract String[] getConstants();
     protected abstract String[] getDeclarations();
 
+    private ScriptLexer lexer;
+    private final StyleRuns lineRuns = new StyleRuns();
+    private final Segment lineSegment = new Segment();
 
-    protected Pattern getStringPattern() {
-        return Pattern.compile("\"([^\"]|\\\\\")*\"", Pattern.DOTALL);
-    }
-
-
-    protected Pattern getSingleLineCommentPattern() {
-        return Pattern.compile("//.*$", Pattern.MULTILINE);
+    public ScriptLexer getLexer() {
+        if (lexer == null) {
+            lexer = new ScriptLexer(
+                    new String[][]{getKeywords(), getTypes(), getConstants(), getDeclarations()},
+                    new byte[]{ScriptLexer.KEYWORD, ScriptLexer.TYPE, ScriptLexer.CONSTANT, ScriptLexer.DECLARATION}
+            );
+        }
+        return lexer;
     }
 
-    protected Pattern getMultiLineCommentPattern() {
-        return Pattern.compile("/\\*.*?\\*/", Pattern.DOTALL);
+    public Style styleFor(byte kind) {
+        switch (kind) {
+            case ScriptLexer.KEYWORD:
+                return keywordStyle;
+            case ScriptLexer.TYPE:
+                return typeStyle;
+            case ScriptLexer.CONSTANT:
+                return constantStyle;
+            case ScriptLexer.DECLARATION:
+                return declarationStyle;
+            case ScriptLexer.STRING:
+                return stringStyle;
+            case ScriptLexer.COMMENT:
+                return commentStyle;
+            default:
+                return defaultStyle;
+        }
     }
 
     public void highlight(StyledDocument doc) {
         try {
-            String text = doc.getText(0, doc.getLength());
-            doc.setCharacterAttributes(0, text.length(), defaultStyle, true);
-
-            highlightStrings(doc, text);
-            highlightComments(doc, text);
-
-            highlightKeywords(doc, text, getKeywords(), keywordStyle);
-            highlightKeywords(doc, text, getTypes(), typeStyle);
-            highlightKeywords(doc, text, getConstants(), constantStyle);
-            highlightKeywords(doc, text, getDeclarations(), declarationStyle);
-
+            Element root = doc.getDefaultRootElement();
+            int state = ScriptLexer.STATE_NORMAL;
+            for (int i = 0; i < root.getElementCount(); i++) {
+                state = highlightLine(doc, root.getElement(i), state);
+            }
         } catch (BadLocationException e) {
             e.printStackTrace();
         }
     }
 
-    protected void highlightKeywords(StyledDocument doc, String text, String[] keywords, Style style) {
-        for (String keyword : keywords) {
-            Pattern pattern = Pattern.compile("\\b" + Pattern.quote(keyword) + "\\b");
-            Matcher matcher = pattern.matcher(text);
-
-            while (matcher.find()) {
-                if (!isDefaultStyleAt(doc, matcher.start())) {
-                    continue;
-                }
-
-                doc.setCharacterAttributes(
-                        matcher.start(),
-                        matcher.end() - matcher.start(),
-                        style,
-                        false
-                );
-            }
-        }
-    }
+    /**
+     * Highlights one line element, given the lexer state at its start, and returns the state at its end.
+     */
+    public int highlightLine(StyledDocument doc, Element line, int state) throws BadLocationException {
+        int start = line.getStartOffset();
+        int length = Math.max(0, Math.min(line.getEndOffset(), doc.getLength() + 1) - 1 - start);
+        doc.getText(start, length, lineSegment);
 
-    protected void highlightStrings(StyledDocument doc, String text) {
-        Pattern pattern = getStringPattern();
-        Matcher matcher = pattern.matcher(text);
+        lineRuns.clear();
+        int endState = getLexer().lexLine(lineSegment, 0, lineSegment.length(), state, start, lineRuns);
 
-        while (matcher.find()) {
-            doc.setCharacterAttributes(
-                    matcher.start(),
-                    matcher.end() - matcher.start(),
-                    stringStyle,
-                    false
-            );
-        }
+        doc.setCharacterAttributes(start, length, defaultStyle, true);
+        applyRuns(doc, lineRuns);
+        return endState;
     }
 
-    protected void highlightComments(StyledDocument doc, String text) {
-        Pattern singleLinePattern = getSingleLineCommentPattern();
-        Matcher singleLineMatcher = singleLinePattern.matcher(text);
-
-        while (singleLineMatcher.find()) {
-            doc.setCharacterAttributes(
-                    singleLineMatcher.start(),
-                    singleLineMatcher.end() - singleLineMatcher.start(),
-                    commentStyle,
-                    false
-            );
-        }
-
-        Pattern multiLinePattern = getMultiLineCommentPattern();
-        Matcher multiLineMatcher = multiLinePattern.matcher(text);
-
-        while (multiLineMatcher.find()) {
-            doc.setCharacterAttributes(
-                    multiLineMatcher.start(),
-                    multiLineMatcher.end() - multiLineMatcher.start(),
-                    commentStyle,
-                    false
-            );
+    public void applyRuns(StyledDocument doc, StyleRuns runs) {
+        for (int i = 0; i < runs.size(); i++) {
+            doc.setCharacterAttributes(runs.getStart(i), runs.getLength(i), styleFor(runs.getKind(i)), false);
         }
     }
-
-    protected boolean isDefaultStyleAt(StyledDocument doc, int pos) {
-        Element element = doc.getCharacterElement(pos);
-        AttributeSet attrs = element.getAttributes();
-
-        if (attrs.isEqual(defaultStyle)) {
-            return true;
-        }
-
-        Color fg = StyleConstants.getForeground(attrs);
-        Color defaultFg = StyleConstants.getForeground(defaultStyle);
-
-        return fg == null || fg.equals(defaultFg);
-    }
-}
\ No newline at end of file
+}
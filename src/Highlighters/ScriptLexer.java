@@ -0,0 +1,209 @@
+package Highlighters;
+
+/**
+ * Single-pass lexer for C-like script languages. Identifiers are classified by a hash lookup over
+ * the language's word tables, and strings and comments are recognised in the same scan.
+ * Lexing a line allocates nothing; results are appended to a caller-supplied {@link StyleRuns}.
+ */
+public class ScriptLexer {
+    public static final int STATE_NORMAL = 0;
+    public static final int STATE_BLOCK_COMMENT = 1;
+    public static final int STATE_TRIPLE_STRING = 2;
+
+    public static final byte KEYWORD = 1;
+    public static final byte TYPE = 2;
+    public static final byte CONSTANT = 3;
+    public static final byte DECLARATION = 4;
+    public static final byte STRING = 5;
+    public static final byte COMMENT = 6;
+
+    private final char[][] words;
+    private final byte[] wordKinds;
+    private final int mask;
+
+    /**
+     * Builds the lexer from word tables given in priority order; a word listed twice keeps its first kind.
+     */
+    public ScriptLexer(String[][] wordTables, byte[] tableKinds) {
+        int count = 0;
+        for (String[] table : wordTables) {
+            count += table.length;
+        }
+        int capacity = Integer.highestOneBit(Math.max(4, count * 4) - 1) << 1;
+        words = new char[capacity][];
+        wordKinds = new byte[capacity];
+        mask = capacity - 1;
+
+        for (int t = 0; t < wordTables.length; t++) {
+            for (String word : wordTables[t]) {
+                char[] chars = word.toCharArray();
+                int slot = hash(chars, 0, chars.length) & mask;
+                while (words[slot] != null && !matches(words[slot], chars, 0, chars.length)) {
+                    slot = (slot + 1) & mask;
+                }
+                if (words[slot] == null) {
+                    words[slot] = chars;
+                    wordKinds[slot] = tableKinds[t];
+                }
+            }
+        }
+    }
+
+    /**
+     * Lexes {@code text[from, to)}, one line without its terminator, starting in the given state.
+     * Runs are recorded at {@code offset + (position - from)}. Returns the state at the end of the line.
+     */
+    public int lexLine(CharSequence text, int from, int to, int state, int offset, StyleRuns runs) {
+        int base = offset - from;
+        int pos = from;
+
+        while (pos < to) {
+            if (state == STATE_BLOCK_COMMENT) {
+                int close = indexOf(text, '*', '/', pos, to);
+                int end = close < 0 ? to : close + 2;
+                runs.add(base + pos, end - pos, COMMENT);
+                pos = end;
+                if (close >= 0) {
+                    state = STATE_NORMAL;
+                }
+                continue;
+            }
+            if (state == STATE_TRIPLE_STRING) {
+                int close = indexOfTripleQuote(text, pos, to);
+                int end = close < 0 ? to : close + 3;
+                runs.add(base + pos, end - pos, STRING);
+                pos = end;
+                if (close >= 0) {
+                    state = STATE_NORMAL;
+                }
+                continue;
+            }
+
+            char c = text.charAt(pos);
+            char next = pos + 1 < to ? text.charAt(pos + 1) : '\0';
+            if (c == '/' && next == '/') {
+                runs.add(base + pos, to - pos, COMMENT);
+                pos = to;
+            } else if (c == '/' && next == '*') {
+                runs.add(base + pos, 2, COMMENT);
+                state = STATE_BLOCK_COMMENT;
+                pos += 2;
+            } else if (c == '"' && next == '"' && pos + 2 < to && text.charAt(pos + 2) == '"') {
+                runs.add(base + pos, 3, STRING);
+                state = STATE_TRIPLE_STRING;
+                pos += 3;
+            } else if (c == '"' || c == '\'') {
+                int end = endOfQuoted(text, pos, to, c);
+                runs.add(base + pos, end - pos, STRING);
+                pos = end;
+            } else if (isWordChar(c)) {
+                int end = pos + 1;
+                while (end < to && isWordChar(text.charAt(end))) {
+                    end++;
+                }
+                byte kind = lookup(text, pos, end);
+                if (kind != 0) {
+                    runs.add(base + pos, end - pos, kind);
+                }
+                pos = end;
+            } else {
+                pos++;
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Returns the kind of the word {@code text[start, end)}, or 0 if it is not in any table.
+     */
+    public byte lookup(CharSequence text, int start, int end) {
+        int slot = hash(text, start, end) & mask;
+        char[] word;
+        while ((word = words[slot]) != null) {
+            if (matches(word, text, start, end)) {
+                return wordKinds[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return 0;
+    }
+
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_'
+                || (c > 127 && Character.isLetterOrDigit(c));
+    }
+
+    private static int endOfQuoted(CharSequence text, int start, int to, char quote) {
+        int pos = start + 1;
+        while (pos < to) {
+            char c = text.charAt(pos);
+            if (c == '\\') {
+                pos += 2;
+                continue;
+            }
+            pos++;
+            if (c == quote) {
+                break;
+            }
+        }
+        return Math.min(pos, to);
+    }
+
+    private static int indexOf(CharSequence text, char first, char second, int from, int to) {
+        for (int i = from; i + 1 < to; i++) {
+            if (text.charAt(i) == first && text.charAt(i + 1) == second) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOfTripleQuote(CharSequence text, int from, int to) {
+        for (int i = from; i + 2 < to; i++) {
+            if (text.charAt(i) == '"' && text.charAt(i + 1) == '"' && text.charAt(i + 2) == '"') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int hash(CharSequence text, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + text.charAt(i);
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static int hash(char[] chars, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + chars[i];
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean matches(char[] word, CharSequence text, int start, int end) {
+        if (word.length != end - start) {
+            return false;
+        }
+        for (int i = 0; i < word.length; i++) {
+            if (word[i] != text.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matches(char[] word, char[] chars, int start, int end) {
+        if (word.length != end - start) {
+            return false;
+        }
+        for (int i = 0; i < word.length; i++) {
+            if (word[i] != chars[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,54 @@
+package Highlighters;
+
+import java.util.Arrays;
+
+/**
+ * Reusable list of styled ranges produced by {@link ScriptLexer}, stored in primitive arrays.
+ * Ranges not covered by a run keep the default style.
+ */
+public class StyleRuns {
+    private int[] starts = new int[256];
+    private int[] lengths = new int[256];
+    private byte[] kinds = new byte[256];
+    private int size = 0;
+
+    public void add(int start, int length, byte kind) {
+        if (length <= 0) {
+            return;
+        }
+        if (size == starts.length) {
+            int capacity = size * 2;
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            kinds = Arrays.copyOf(kinds, capacity);
+        }
+        if (size > 0 && kinds[size - 1] == kind && starts[size - 1] + lengths[size - 1] == start) {
+            lengths[size - 1] += length;
+            return;
+        }
+        starts[size] = start;
+        lengths[size] = length;
+        kinds[size] = kind;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getStart(int index) {
+        return starts[index];
+    }
+
+    public int getLength(int index) {
+        return lengths[index];
+    }
+
+    public byte getKind(int index) {
+        return kinds[index];
+    }
+
+    public void clear() {
+        size = 0;
+    }
+}
@@ -1,7 +1,6 @@
 package Highlighters;
 
 import java.awt.Color;
-import java.util.regex.*;
 
 public class SwiftHighlighter extends ScriptHighlighter {
 
@@ -41,9 +40,4 @@ public class SwiftHighlighter extends ScriptHighlighter {
     protected String[] getDeclarations() {
         return DECLARATIONS;
     }
-
-    @Override
-    protected Pattern getStringPattern(){
-        return Pattern.compile("\"([^\"]|\\\\\")*\"|\"\"\".+?\"\"\"", Pattern.DOTALL);
-    }
 }
\ No newline at end of file
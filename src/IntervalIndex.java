@@ -0,0 +1,111 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Closed intervals of line numbers with values, ordered by start.
+ * <p>
+ * Lookups only visit intervals that start within the longest interval's length of the query, so with the
+ * short ranges diagnostics cover, hit-testing and next/previous are O(log n) plus the number of results.
+ */
+public class IntervalIndex<T> {
+    private static class Interval<T> {
+        final long start;
+        long end;
+        final T value;
+
+        Interval(long start, long end, T value) {
+            this.start = start;
+            this.end = end;
+            this.value = value;
+        }
+    }
+
+    private final TreeMap<Long, List<Interval<T>>> byStart = new TreeMap<>();
+    private long maxLength = 0;
+    private int size = 0;
+
+    public void add(long start, long end, T value) {
+        byStart.computeIfAbsent(start, key -> new ArrayList<>(1)).add(new Interval<>(start, end, value));
+        maxLength = Math.max(maxLength, end - start);
+        size++;
+    }
+
+    /**
+     * Moves the end of the interval starting at {@code start} that holds {@code value}.
+     */
+    public void setEnd(long start, T value, long end) {
+        List<Interval<T>> intervals = byStart.get(start);
+        if (intervals == null) {
+            return;
+        }
+        for (Interval<T> interval : intervals) {
+            if (interval.value == value) {
+                interval.end = end;
+                maxLength = Math.max(maxLength, end - start);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the values of all intervals containing the point.
+     */
+    public List<T> at(long point) {
+        return overlapping(point, point);
+    }
+
+    /**
+     * Returns the values of all intervals overlapping {@code [from, to]}, ordered by start.
+     */
+    public List<T> overlapping(long from, long to) {
+        if (byStart.isEmpty() || to < from) {
+            return Collections.emptyList();
+        }
+        List<T> result = new ArrayList<>();
+        for (List<Interval<T>> intervals : byStart.subMap(from - maxLength, true, to, true).values()) {
+            for (Interval<T> interval : intervals) {
+                if (interval.end >= from) {
+                    result.add(interval.value);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the first value of the first interval starting after the point, or null.
+     */
+    public T next(long point) {
+        Map.Entry<Long, List<Interval<T>>> entry = byStart.higherEntry(point);
+        return entry == null ? null : entry.getValue().get(0).value;
+    }
+
+    /**
+     * Returns the first value of the last interval starting before the point, or null.
+     */
+    public T previous(long point) {
+        Map.Entry<Long, List<Interval<T>>> entry = byStart.lowerEntry(point);
+        return entry == null ? null : entry.getValue().get(0).value;
+    }
+
+    public T first() {
+        return byStart.isEmpty() ? null : byStart.firstEntry().getValue().get(0).value;
+    }
+
+    public T last() {
+        return byStart.isEmpty() ? null : byStart.lastEntry().getValue().get(0).value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        byStart.clear();
+        maxLength = 0;
+        size = 0;
+    }
+}
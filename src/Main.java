@@ -2,6 +2,9 @@ import javax.swing.*;
 
 public class Main{
     public static void main(String[] args) {
+        if (args.length > 0 && "--batch".equals(args[0])) {
+            System.exit(BatchRunner.run(args));
+        }
         System.setProperty("sun.awt.keepWorkingSetOnMinimize","true");
         SwingUtilities.invokeLater(ScriptWindow::new);
     }
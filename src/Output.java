@@ -1,64 +1,196 @@
+import Runners.LineRingBuffer;
+import Runners.OutputChunk;
+
 import javax.swing.*;
-import javax.swing.event.*;
-import javax.swing.text.*;
 import java.awt.*;
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.StringSelection;
 import java.awt.event.*;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
 /**
- * A text pane that displays output with clickable error locations.
+ * A virtualized output view with clickable error locations. Locations are also collected into a
+ * {@link Diagnostics} model, which shows a diagnostic's message and notes when hovering any line it covers.
+ * <p>
+ * Lines are kept in a {@link LineRingBuffer}, which spills older lines to disk, and only the rows
+ * inside the visible rectangle are painted, so memory and paint cost stay flat however much a script prints.
+ * Styling is limited to what output needs: error locations and echoed input lines are recorded sparsely
+ * per line, stderr as ranges of lines, and everything else is drawn in the foreground colour. Styling is
+ * dropped for lines once they are spilled, so it is only kept for the lines still in memory.
+ * <p>
+ * A script's stdout and stderr are read on separate threads, so their chunks can be queued out of order.
+ * Their sequence numbers have no gaps, so a chunk that arrives early is held back until every chunk before
+ * it has been shown. Only stderr and runner errors are searched for
+ * error locations, which keeps the parsing cost off high-volume stdout.
  */
-public class Output extends JTextPane {
+public class Output extends JComponent implements Scrollable {
+    private static final int RING_LINES = 20000;
+    private static final int RING_BYTES = 4 * 1024 * 1024;
+    private static final int FRAME_MS = 16;
+    /** How long a gap in the sequence may hold back later chunks before they are shown without it. */
+    private static final long MAX_HOLD_BACK_MS = 500;
+    private static final String PROMPT = "> ";
+
+    private static final Color ERROR_LOCATION_COLOUR = Color.RED;
+    private static final Color ERROR_OUTPUT_COLOUR = new Color(255, 130, 130);
+    private static final Color INPUT_COLOUR = new Color(0, 180, 0);
+
     private final Consumer<ErrorParser.Location> locationClickHandler;
     private Consumer<String> inputHandler;
     private boolean waitingForInput = false;
-    private int inputStartPosition = 0;
-
-    private final SimpleAttributeSet normalAttributes = new SimpleAttributeSet();
-    private final SimpleAttributeSet errorLocationAttributes = new SimpleAttributeSet();
-    private final SimpleAttributeSet inputAttributes = new SimpleAttributeSet();
+    private final StringBuilder inputBuffer = new StringBuilder();
+
+    private final LineRingBuffer lines = new LineRingBuffer(RING_LINES, RING_BYTES);
+    private final TreeMap<Long, LineDecoration> decorations = new TreeMap<>();
+    /** Start line to end line, exclusive, of each run of error lines. */
+    private final TreeMap<Long, Long> errorRanges = new TreeMap<>();
+    /** Lines below this have been spilled and their styling forgotten. */
+    private long firstStyledLine = 0;
+    private final Diagnostics diagnostics = new Diagnostics();
+    private Runnable diagnosticsListener;
+    private int maxLineLength = 0;
+
+    private Color selectionColour = new Color(51, 153, 255, 80);
+    private long selectionAnchor = -1;
+    private long selectionEnd = -1;
+
+    private final ConcurrentLinkedQueue<PendingText> pendingQueue = new ConcurrentLinkedQueue<>();
+    private final List<PendingText> flushBatch = new ArrayList<>();
+    private final PriorityQueue<PendingText> heldBack = new PriorityQueue<>(PendingText.BY_SEQUENCE);
+    private long nextSequence = 0;
+    private long gapSinceNanos = 0;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private final AtomicLong queuedCount = new AtomicLong();
+    private final Timer flushTimer;
+    private long flushCount = 0;
+
+    /**
+     * Lines waiting for the next flush, with the clickable locations found in them. Text that did not come
+     * from a script's output streams has no sequence number and is shown in the order it was queued.
+     */
+    private static class PendingText {
+        static final Comparator<PendingText> BY_SEQUENCE = Comparator.comparingLong(pending -> pending.sequence);
+
+        final String[] lines;
+        final long sequence;
+        final boolean error;
+        ErrorParser.Location[] locations;
+        int[] locationLines;
+        int[] locationColumns;
+        int locationCount = 0;
+
+        PendingText(String[] lines, long sequence, boolean error) {
+            this.lines = lines;
+            this.sequence = sequence;
+            this.error = error;
+        }
 
-    private static final int MAX_BUFFER_SIZE = 500000;
+        void addLocation(int line, int column, ErrorParser.Location location) {
+            if (locations == null) {
+                locations = new ErrorParser.Location[2];
+                locationLines = new int[2];
+                locationColumns = new int[2];
+            } else if (locationCount == locations.length) {
+                locations = Arrays.copyOf(locations, locationCount * 2);
+                locationLines = Arrays.copyOf(locationLines, locationCount * 2);
+                locationColumns = Arrays.copyOf(locationColumns, locationCount * 2);
+            }
+            locations[locationCount] = location;
+            locationLines[locationCount] = line;
+            locationColumns[locationCount] = column;
+            locationCount++;
+        }
+    }
 
-    private boolean trimming = false;
+    /**
+     * Styling for a single line: either an echoed input line or a clickable location span.
+     */
+    private static class LineDecoration {
+        final boolean input;
+        final ErrorParser.Location location;
+        final int locationStart;
+        final int locationEnd;
+
+        LineDecoration(boolean input, ErrorParser.Location location, int locationStart, int locationEnd) {
+            this.input = input;
+            this.location = location;
+            this.locationStart = locationStart;
+            this.locationEnd = locationEnd;
+        }
+    }
 
     public Output(Consumer<ErrorParser.Location> locationClickHandler) {
         this.locationClickHandler = locationClickHandler;
 
-        setEditable(false);
-        setFont(new Font("Monospaced", Font.PLAIN, 12));
-
-        StyleConstants.setForeground(errorLocationAttributes, Color.RED);
-        StyleConstants.setUnderline(errorLocationAttributes, true);
+        flushTimer = new Timer(FRAME_MS, e -> flush());
+        flushTimer.setRepeats(false);
 
-        StyleConstants.setForeground(inputAttributes, new Color(0, 180, 0));
-        StyleConstants.setBold(inputAttributes, true);
+        setFont(new Font("Monospaced", Font.PLAIN, 12));
+        setOpaque(true);
+        setFocusable(true);
 
         addMouseListener(new MouseAdapter() {
             @Override
             public void mouseClicked(MouseEvent e) {
                 handleMouseClick(e);
             }
+
+            @Override
+            public void mousePressed(MouseEvent e) {
+                requestFocusInWindow();
+                selectionAnchor = rowAt(e.getY());
+                selectionEnd = selectionAnchor;
+                repaint();
+            }
         });
 
         setCursor(Cursor.getPredefinedCursor(Cursor.TEXT_CURSOR));
         addMouseMotionListener(new MouseMotionAdapter() {
             @Override
             public void mouseMoved(MouseEvent e) {
-                int pos = viewToModel2D(e.getPoint());
-                if (pos >= 0 && hasErrorLocationAttributeAt(pos)) {
+                if (locationAt(e.getPoint()) != null) {
                     setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
                 } else {
                     setCursor(Cursor.getPredefinedCursor(Cursor.TEXT_CURSOR));
                 }
+                List<Diagnostic> hit = diagnostics.atOutputLine((e.getY() - getInsets().top) / lineHeight());
+                setToolTipText(hit.isEmpty() ? null : hit.get(0).describe());
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                if (selectionAnchor >= 0) {
+                    selectionEnd = rowAt(e.getY());
+                    scrollRectToVisible(new Rectangle(e.getX(), e.getY(), 1, 1));
+                    repaint();
+                }
             }
         });
 
         addKeyListener(new KeyAdapter() {
             @Override
             public void keyPressed(KeyEvent e) {
-                if (waitingForInput && e.getKeyCode() == KeyEvent.VK_ENTER) {
-                    submitInput();
+                handleKeyPressed(e);
+            }
+
+            @Override
+            public void keyTyped(KeyEvent e) {
+                char c = e.getKeyChar();
+                if (waitingForInput && c >= ' ' && c != KeyEvent.CHAR_UNDEFINED && c != 127
+                        && (e.getModifiersEx() & (InputEvent.CTRL_DOWN_MASK | InputEvent.META_DOWN_MASK)) == 0) {
+                    inputBuffer.append(c);
+                    repaintInputRow();
                     e.consume();
                 }
             }
@@ -69,162 +201,482 @@ public class Output extends JTextPane {
         this.inputHandler = inputHandler;
     }
 
+    public void setSelectionColor(Color selectionColour) {
+        this.selectionColour = selectionColour;
+    }
+
     public void startWaitingForInput() {
         System.out.println("[DEBUG] Output: startWaitingForInput called");
         SwingUtilities.invokeLater(() -> {
             System.out.println("[DEBUG] Output: Setting up input mode");
+            flush();
             waitingForInput = true;
-            setEditable(true);
-            inputStartPosition = getDocument().getLength();
+            inputBuffer.setLength(0);
 
-            try {
-                System.out.println("[DEBUG] Output: Adding input prompt");
-                appendText("> ", inputAttributes);
-
-                setCaretPosition(getDocument().getLength());
-                requestFocusInWindow();
-                System.out.println("[DEBUG] Output: Input mode setup complete");
-            } catch (Exception e) {
-                System.err.println("[ERROR] Output: Exception in startWaitingForInput: " + e.getMessage());
-                e.printStackTrace();
-            }
+            System.out.println("[DEBUG] Output: Adding input prompt");
+            contentChanged(true);
+            requestFocusInWindow();
+            System.out.println("[DEBUG] Output: Input mode setup complete");
         });
     }
 
     public void stopWaitingForInput() {
         SwingUtilities.invokeLater(() -> {
-            waitingForInput = false;
-            setEditable(false);
+            if (waitingForInput) {
+                waitingForInput = false;
+                contentChanged(false);
+            }
         });
     }
 
     private void submitInput() {
         if (inputHandler != null && waitingForInput) {
-            try {
-                String userInput = getText(inputStartPosition, getDocument().getLength() - inputStartPosition).replaceAll(">", "");
-                appendText("\n", normalAttributes);
-                inputHandler.accept(userInput);
-                stopWaitingForInput();
-            } catch (BadLocationException e) {
-                System.err.println("Error getting input text: " + e.getMessage());
-            }
+            String userInput = inputBuffer.toString();
+            addLine(PROMPT + userInput, new LineDecoration(true, null, 0, 0));
+            inputBuffer.setLength(0);
+            waitingForInput = false;
+            contentChanged(true);
+            inputHandler.accept(userInput);
         }
     }
 
-    public void appendLine(String line) {
-        ErrorParser.Location location = ErrorParser.parseLocation(line);
+    /**
+     * Queues one or more newline-separated lines for display. Safe to call from any thread; the lines are
+     * added by the next frame flush on the EDT.
+     */
+    public void appendLine(String text) {
+        queue(text, -1, false);
+    }
 
-        SwingUtilities.invokeLater(() -> {
-            StyledDocument doc = getStyledDocument();
+    /**
+     * Queues error lines, such as compiler messages, which are styled as errors and searched for error
+     * locations. Safe to call from any thread.
+     */
+    public void appendError(String text) {
+        queue(text, -1, true);
+    }
 
-            if (doc.getLength() > MAX_BUFFER_SIZE && !trimming) {
-                trimming = true;
+    /**
+     * Queues a chunk of a script's output. Stderr chunks are treated like {@link #appendError}. Safe to call
+     * from any thread.
+     */
+    public void append(OutputChunk chunk) {
+        queue(chunk.getText(), chunk.getSequence(), chunk.isError());
+    }
 
-                try {
-                    if (!line.contains("--- Output limit reached")) {
-                        doc.insertString(doc.getLength(),
-                                "\n--- Document size limit reached, older content will be removed ---\n",
-                                normalAttributes);
-                    }
+    private void queue(String text, long sequence, boolean error) {
+        PendingText pending = new PendingText(text.split("\n", -1), sequence, error);
+        for (int i = 0; error && i < pending.lines.length; i++) {
+            String line = pending.lines[i];
+            if (line.indexOf(':') < 0) {
+                continue;
+            }
+            ErrorParser.Location location = ErrorParser.parseLocation(line);
+            if (location != null) {
+                pending.addLocation(i, location.getStart(), location);
+            }
+        }
+        pendingQueue.offer(pending);
+        queuedCount.incrementAndGet();
+        if (flushScheduled.compareAndSet(false, true)) {
+            flushTimer.start();
+        }
+    }
 
-                    int trimPoint = doc.getLength() / 4;
-                    doc.remove(0, trimPoint);
+    /**
+     * Returns how many EDT tasks batching has avoided since the last {@link #clear()}, counting one
+     * task per queued append against the flushes actually run.
+     */
+    public long getSavedEdtTasks() {
+        return queuedCount.get() - flushCount;
+    }
+
+    public long getLineCount() {
+        return lines.getLineCount();
+    }
 
-                } catch (BadLocationException e) {
-                    System.err.println("Error trimming document: " + e.getMessage());
-                } finally {
-                    trimming = false;
+    /**
+     * Adds everything queued so far to the line store, then resizes and scrolls once.
+     * Must be called on the EDT.
+     */
+    public void flush() {
+        flushScheduled.set(false);
+        PendingText queued;
+        while ((queued = pendingQueue.poll()) != null) {
+            if (queued.sequence < 0) {
+                flushBatch.add(queued);
+            } else {
+                heldBack.add(queued);
+                releaseInSequence();
+            }
+        }
+        if (!heldBack.isEmpty()) {
+            long now = System.nanoTime();
+            if (gapSinceNanos == 0) {
+                gapSinceNanos = now;
+            } else if (now - gapSinceNanos > MAX_HOLD_BACK_MS * 1_000_000) {
+                System.err.println("Output: chunk " + nextSequence + " never arrived, showing later output without it");
+                nextSequence = heldBack.peek().sequence;
+                releaseInSequence();
+            }
+            if (!heldBack.isEmpty() && flushScheduled.compareAndSet(false, true)) {
+                flushTimer.start();
+            }
+        }
+        if (flushBatch.isEmpty()) {
+            return;
+        }
+        flushCount++;
+
+        boolean following = isFollowingOutput();
+        boolean diagnosticsChanged = false;
+        for (PendingText pending : flushBatch) {
+            long firstLine = lines.getLineCount();
+            for (String line : pending.lines) {
+                addLine(line, null);
+            }
+            if (pending.error) {
+                markErrorLines(Math.max(firstLine, firstStyledLine), lines.getLineCount());
+            }
+            for (int i = 0; i < pending.locationCount; i++) {
+                int start = pending.locationColumns[i];
+                ErrorParser.Location location = pending.locations[i];
+                if (firstLine + pending.locationLines[i] >= firstStyledLine) {
+                    decorations.put(firstLine + pending.locationLines[i],
+                            new LineDecoration(false, location, start, start + location.getFullMatch().length()));
                 }
+                diagnosticsChanged |= diagnostics.add(firstLine + pending.locationLines[i], location);
             }
+        }
+        flushBatch.clear();
+        contentChanged(following);
+        if (diagnosticsChanged && diagnosticsListener != null) {
+            diagnosticsListener.run();
+        }
+    }
 
-            try {
-                if (location != null) {
-                    int locStart = line.indexOf(location.getFullMatch());
-                    int locEnd = locStart + location.getFullMatch().length();
+    /**
+     * Moves held-back chunks to the flush batch for as long as the next one in sequence is there. Chunks
+     * numbered below the next expected one cannot be placed any more and are shown as they come.
+     */
+    private void releaseInSequence() {
+        PendingText next;
+        while ((next = heldBack.peek()) != null && next.sequence <= nextSequence) {
+            heldBack.poll();
+            flushBatch.add(next);
+            if (next.sequence == nextSequence) {
+                nextSequence++;
+                gapSinceNanos = 0;
+            }
+        }
+    }
 
-                    if (locStart > 0) {
-                        doc.insertString(doc.getLength(), line.substring(0, locStart), normalAttributes);
-                    }
+    private void markErrorLines(long start, long end) {
+        if (start >= end) {
+            return;
+        }
+        Map.Entry<Long, Long> last = errorRanges.lastEntry();
+        if (last != null && last.getValue() == start) {
+            errorRanges.put(last.getKey(), end);
+        } else {
+            errorRanges.put(start, end);
+        }
+    }
 
-                    AttributeSet locationAttributes = getErrorLocationAttributes(location);
-                    doc.insertString(doc.getLength(), line.substring(locStart, locEnd), locationAttributes);
+    private boolean isErrorLine(long row) {
+        Map.Entry<Long, Long> range = errorRanges.floorEntry(row);
+        return range != null && row < range.getValue();
+    }
 
-                    if (locEnd < line.length()) {
-                        doc.insertString(doc.getLength(), line.substring(locEnd), normalAttributes);
-                    }
-                } else {
-                    doc.insertString(doc.getLength(), line, normalAttributes);
-                }
+    /**
+     * Returns the diagnostics printed so far. Read and changed on the EDT only.
+     */
+    public Diagnostics getDiagnostics() {
+        return diagnostics;
+    }
 
-                doc.insertString(doc.getLength(), "\n", normalAttributes);
-            } catch (BadLocationException e) {
-                try {
-                    doc.insertString(doc.getLength(), line + "\n", normalAttributes);
-                } catch (BadLocationException ex) {
-                    ex.printStackTrace();
-                }
-            }
-            scrollToBottom();
-        });
+    /**
+     * Sets a callback run on the EDT after a flush adds diagnostics.
+     */
+    public void setDiagnosticsListener(Runnable diagnosticsListener) {
+        this.diagnosticsListener = diagnosticsListener;
     }
 
-    public void appendText(String text, AttributeSet attributes) {
-        SwingUtilities.invokeLater(() -> {
-            try {
-                StyledDocument doc = getStyledDocument();
-                doc.insertString(doc.getLength(), text, attributes);
-                scrollToBottom();
-            } catch (BadLocationException e) {
-                e.printStackTrace();
-            }
-        });
+    public void clear() {
+        pendingQueue.clear();
+        heldBack.clear();
+        nextSequence = 0;
+        gapSinceNanos = 0;
+        queuedCount.set(0);
+        flushCount = 0;
+        try {
+            lines.close();
+        } catch (IOException e) {
+            System.err.println("Error clearing output: " + e.getMessage());
+        }
+        decorations.clear();
+        errorRanges.clear();
+        firstStyledLine = 0;
+        diagnostics.clear();
+        maxLineLength = 0;
+        selectionAnchor = -1;
+        selectionEnd = -1;
+        contentChanged(false);
+    }
+
+    private void addLine(String line, LineDecoration decoration) {
+        if (decoration != null) {
+            decorations.put(lines.getLineCount(), decoration);
+        }
+        lines.add(line);
+        maxLineLength = Math.max(maxLineLength, line.length());
+        if (lines.getSpilledLineCount() > firstStyledLine) {
+            forgetSpilledLines(lines.getSpilledLineCount());
+        }
+    }
+
+    /**
+     * Drops decorations and error ranges below the first line still held in memory, so they stay as
+     * bounded as the ring buffer.
+     */
+    private void forgetSpilledLines(long firstRetained) {
+        decorations.headMap(firstRetained).clear();
+        Map.Entry<Long, Long> straddling = errorRanges.lowerEntry(firstRetained);
+        errorRanges.headMap(firstRetained).clear();
+        if (straddling != null && straddling.getValue() > firstRetained) {
+            errorRanges.put(firstRetained, straddling.getValue());
+        }
+        firstStyledLine = firstRetained;
+    }
+
+    private long rowCount() {
+        return lines.getLineCount() + (waitingForInput ? 1 : 0);
+    }
+
+    private int lineHeight() {
+        return getFontMetrics(getFont()).getHeight();
     }
 
-    private void scrollToBottom() {
-        Document doc = getDocument();
+    private int charWidth() {
+        return getFontMetrics(getFont()).charWidth('m');
+    }
+
+    private boolean isFollowingOutput() {
         Rectangle visible = getVisibleRect();
+        return visible.y + visible.height >= getHeight() - lineHeight();
+    }
 
-        try {
-            Rectangle lastRect = (Rectangle) modelToView2D(doc.getLength());
-            if (lastRect != null &&
-                    (lastRect.y - (visible.y + visible.height) > 100 ||
-                            lastRect.y < visible.y)) {
-                setCaretPosition(doc.getLength());
+    /**
+     * Resizes the view to the current row count and, if requested, keeps the last row in view.
+     */
+    private void contentChanged(boolean scrollToBottom) {
+        Dimension preferred = getPreferredSize();
+        if (getParent() instanceof JViewport) {
+            setSize(Math.max(preferred.width, getParent().getWidth()), Math.max(preferred.height, getParent().getHeight()));
+        }
+        revalidate();
+        if (scrollToBottom) {
+            int height = lineHeight();
+            scrollRectToVisible(new Rectangle(0, getInsets().top + (int) Math.min(Integer.MAX_VALUE - height,
+                    (rowCount() - 1) * height), 1, height));
+        }
+        repaint();
+    }
+
+    private void repaintInputRow() {
+        int height = lineHeight();
+        long y = getInsets().top + (rowCount() - 1) * height;
+        repaint(0, (int) Math.min(Integer.MAX_VALUE - height, y), getWidth(), height);
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        Insets insets = getInsets();
+        long height = insets.top + insets.bottom + rowCount() * lineHeight();
+        int width = insets.left + insets.right + (Math.max(maxLineLength, inputBuffer.length() + PROMPT.length()) + 1) * charWidth();
+        return new Dimension(width, (int) Math.min(Integer.MAX_VALUE, height));
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Rectangle clip = g.getClipBounds();
+        g.setColor(getBackground());
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+        ((Graphics2D) g).setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+
+        Insets insets = getInsets();
+        FontMetrics metrics = getFontMetrics(getFont());
+        int height = metrics.getHeight();
+        int charWidth = charWidth();
+        long rows = rowCount();
+        long firstRow = Math.max(0, (clip.y - insets.top) / height);
+        long lastRow = Math.min(rows - 1, (clip.y + clip.height - insets.top) / height);
+        int firstColumn = Math.max(0, (clip.x - insets.left) / charWidth);
+        int lastColumn = (clip.x + clip.width - insets.left) / charWidth + 1;
+        long selectionStart = Math.min(selectionAnchor, selectionEnd);
+        long selectionStop = Math.max(selectionAnchor, selectionEnd);
+
+        for (long row = firstRow; row <= lastRow; row++) {
+            int top = insets.top + (int) (row * height);
+            int baseline = top + metrics.getAscent();
+            if (selectionStart >= 0 && row >= selectionStart && row <= selectionStop) {
+                g.setColor(selectionColour);
+                g.fillRect(clip.x, top, clip.width, height);
+            }
+
+            if (row == lines.getLineCount()) {
+                String prompt = PROMPT + inputBuffer;
+                g.setFont(getFont().deriveFont(Font.BOLD));
+                g.setColor(INPUT_COLOUR);
+                g.drawString(prompt, insets.left, baseline);
+                g.setColor(getForeground());
+                g.fillRect(insets.left + prompt.length() * charWidth, top + 1, 1, height - 2);
+                g.setFont(getFont());
+                continue;
+            }
+
+            String line;
+            try {
+                line = lines.getLine(row);
+            } catch (IOException e) {
+                line = "";
+            }
+            LineDecoration decoration = decorations.get(row);
+            Color colour = isErrorLine(row) ? ERROR_OUTPUT_COLOUR : getForeground();
+            if (decoration != null && decoration.input) {
+                g.setFont(getFont().deriveFont(Font.BOLD));
+                drawSpan(g, line, 0, line.length(), firstColumn, lastColumn, insets.left, baseline, INPUT_COLOUR, charWidth);
+                g.setFont(getFont());
+            } else if (decoration != null) {
+                int locStart = Math.min(decoration.locationStart, line.length());
+                int locEnd = Math.min(decoration.locationEnd, line.length());
+                drawSpan(g, line, 0, locStart, firstColumn, lastColumn, insets.left, baseline, colour, charWidth);
+                drawSpan(g, line, locStart, locEnd, firstColumn, lastColumn, insets.left, baseline, ERROR_LOCATION_COLOUR, charWidth);
+                int underlineStart = Math.max(locStart, firstColumn);
+                int underlineEnd = Math.min(locEnd, lastColumn);
+                if (underlineEnd > underlineStart) {
+                    g.drawLine(insets.left + underlineStart * charWidth, baseline + 1,
+                            insets.left + underlineEnd * charWidth, baseline + 1);
+                }
+                drawSpan(g, line, locEnd, line.length(), firstColumn, lastColumn, insets.left, baseline, colour, charWidth);
+            } else {
+                drawSpan(g, line, 0, line.length(), firstColumn, lastColumn, insets.left, baseline, colour, charWidth);
             }
-        } catch (BadLocationException e) {
-            setCaretPosition(doc.getLength());
         }
     }
 
-    public void clear() {
-        setText("");
+    /**
+     * Draws {@code line[start, end)} clipped to the visible columns, with tabs shown as single spaces
+     * so that character columns stay aligned with the location offsets.
+     */
+    private static void drawSpan(Graphics g, String line, int start, int end, int firstColumn, int lastColumn,
+                                 int left, int baseline, Color colour, int charWidth) {
+        int from = Math.max(start, firstColumn);
+        int to = Math.min(end, lastColumn);
+        if (to <= from) {
+            return;
+        }
+        g.setColor(colour);
+        g.drawString(line.substring(from, to).replace('\t', ' '), left + from * charWidth, baseline);
     }
 
-    private void handleMouseClick(MouseEvent e) {
-        StyledDocument doc = getStyledDocument();
-        Element elem = doc.getCharacterElement(viewToModel2D(e.getPoint()));
-        AttributeSet attrs = elem.getAttributes();
+    private long rowAt(int y) {
+        long row = (y - getInsets().top) / lineHeight();
+        return Math.max(0, Math.min(row, lines.getLineCount() - 1));
+    }
 
-        ErrorParser.Location location =
-                (ErrorParser.Location) attrs.getAttribute("location");
+    private ErrorParser.Location locationAt(Point point) {
+        long row = (point.y - getInsets().top) / lineHeight();
+        LineDecoration decoration = decorations.get(row);
+        if (decoration == null || decoration.location == null) {
+            return null;
+        }
+        int column = (point.x - getInsets().left) / charWidth();
+        return column >= decoration.locationStart && column < decoration.locationEnd ? decoration.location : null;
+    }
 
+    private void handleMouseClick(MouseEvent e) {
+        ErrorParser.Location location = locationAt(e.getPoint());
         if (location != null && locationClickHandler != null) {
             locationClickHandler.accept(location);
         }
     }
 
-    private AttributeSet getErrorLocationAttributes(ErrorParser.Location location) {
-        SimpleAttributeSet attrs = new SimpleAttributeSet(errorLocationAttributes);
-        attrs.addAttribute("location", location);
-        return attrs;
+    private void handleKeyPressed(KeyEvent e) {
+        boolean shortcut = (e.getModifiersEx() & Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx()) != 0;
+        if (shortcut && e.getKeyCode() == KeyEvent.VK_C) {
+            copySelection();
+            e.consume();
+        } else if (shortcut && e.getKeyCode() == KeyEvent.VK_A) {
+            selectionAnchor = 0;
+            selectionEnd = lines.getLineCount() - 1;
+            repaint();
+            e.consume();
+        } else if (waitingForInput && shortcut && e.getKeyCode() == KeyEvent.VK_V) {
+            pasteIntoInput();
+            e.consume();
+        } else if (waitingForInput && e.getKeyCode() == KeyEvent.VK_ENTER) {
+            submitInput();
+            e.consume();
+        } else if (waitingForInput && e.getKeyCode() == KeyEvent.VK_BACK_SPACE) {
+            if (inputBuffer.length() > 0) {
+                inputBuffer.setLength(inputBuffer.length() - 1);
+                repaintInputRow();
+            }
+            e.consume();
+        }
     }
 
-    private boolean hasErrorLocationAttributeAt(int pos) {
-        StyledDocument doc = getStyledDocument();
-        if (pos >= 0 && pos < doc.getLength()) {
-            Element elem = doc.getCharacterElement(pos);
-            return elem.getAttributes().getAttribute("location") != null;
+    private void copySelection() {
+        if (selectionAnchor < 0) {
+            return;
         }
-        return false;
+        long start = Math.min(selectionAnchor, selectionEnd);
+        long end = Math.max(selectionAnchor, selectionEnd);
+        StringBuilder text = new StringBuilder();
+        try {
+            for (long row = start; row <= end && row < lines.getLineCount(); row++) {
+                text.append(lines.getLine(row)).append('\n');
+            }
+        } catch (IOException e) {
+            System.err.println("Error copying output: " + e.getMessage());
+        }
+        Toolkit.getDefaultToolkit().getSystemClipboard().setContents(new StringSelection(text.toString()), null);
+    }
+
+    private void pasteIntoInput() {
+        try {
+            String text = (String) Toolkit.getDefaultToolkit().getSystemClipboard().getData(DataFlavor.stringFlavor);
+            int newline = text.indexOf('\n');
+            inputBuffer.append(newline < 0 ? text : text.substring(0, newline));
+            contentChanged(true);
+        } catch (Exception e) {
+            System.err.println("Error pasting input: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return getPreferredSize();
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? lineHeight() : charWidth();
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? visibleRect.height - lineHeight() : visibleRect.width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return getParent() instanceof JViewport && getParent().getWidth() > getPreferredSize().width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return getParent() instanceof JViewport && getParent().getHeight() > getPreferredSize().height;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,266 @@
+package Runners;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+/**
+ * On-disk store of compiled scripts, keyed by a hash of the source, compiler version and flags.
+ * Least recently used artifacts are evicted once the store grows past its size budget, and staging files
+ * left behind by builds that never finished are removed when the store is opened.
+ */
+public class ArtifactCache {
+    private static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+    private static final String STAGING_PREFIX = "staging_";
+    private static final long ABANDON_POLL_MS = 50;
+    /** Age after which a staging file cannot belong to a build that is still running, even in another process. */
+    private static final long STALE_STAGING_MS = 60 * 60 * 1000;
+
+    private static ArtifactCache shared;
+    private static final Map<List<String>, String> compilerVersions = new ConcurrentHashMap<>();
+
+    private final Path root;
+    private final long maxBytes;
+    private final Map<String, CountDownLatch> buildsInFlight = new ConcurrentHashMap<>();
+
+    public ArtifactCache(Path root, long maxBytes) {
+        this.root = root;
+        this.maxBytes = maxBytes;
+        sweepStaging();
+    }
+
+    public static synchronized ArtifactCache shared() {
+        if (shared == null) {
+            shared = new ArtifactCache(
+                    Paths.get(System.getProperty("java.io.tmpdir"), "swift-kotlin-tool-cache"),
+                    DEFAULT_MAX_BYTES
+            );
+        }
+        return shared;
+    }
+
+    /**
+     * Directory holding the artifacts. Subdirectories are ignored by eviction, so runners may keep
+     * their own persistent state there.
+     */
+    public Path getRoot() {
+        return root;
+    }
+
+    public static String key(String source, String compilerVersion, List<String> flags) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(compilerVersion.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            for (String flag : flags) {
+                digest.update(flag.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            digest.update(source.getBytes(StandardCharsets.UTF_8));
+
+            StringBuilder hex = new StringBuilder(64);
+            for (byte b : digest.digest()) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+                hex.append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Returns the output of a compiler's version command, run once per command for the life of the JVM.
+     */
+    public static String compilerVersion(String... command) {
+        return compilerVersions.computeIfAbsent(List.of(command), ArtifactCache::probeVersion);
+    }
+
+    private static String probeVersion(List<String> command) {
+        try {
+            ProcessBuilder builder = new ProcessBuilder(command);
+            builder.redirectErrorStream(true);
+            Process process = builder.start();
+            ByteArrayOutputStream version = new ByteArrayOutputStream();
+            try (InputStream in = process.getInputStream()) {
+                in.transferTo(version);
+            }
+            process.waitFor();
+            return version.toString(StandardCharsets.UTF_8).trim();
+        } catch (IOException e) {
+            return "unknown";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "unknown";
+        }
+    }
+
+    /**
+     * Returns the cached artifact with the given name, or null if there is none.
+     * A hit marks the artifact as recently used.
+     */
+    public Path lookup(String name) {
+        Path artifact = root.resolve(name);
+        if (!Files.isRegularFile(artifact)) {
+            return null;
+        }
+        try {
+            Files.setLastModifiedTime(artifact, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            return null;
+        }
+        return artifact;
+    }
+
+    /**
+     * Claims the build of an artifact for a background compile. Returns false if another build of it
+     * is already in flight.
+     */
+    public boolean beginBuild(String name) {
+        return buildsInFlight.putIfAbsent(name, new CountDownLatch(1)) == null;
+    }
+
+    public void endBuild(String name) {
+        CountDownLatch latch = buildsInFlight.remove(name);
+        if (latch != null) {
+            latch.countDown();
+        }
+    }
+
+    /**
+     * Waits for an in-flight build of the artifact, if any, and returns the artifact or null if it is
+     * still not in the store.
+     */
+    public Path awaitBuild(String name) throws InterruptedException {
+        CountDownLatch latch = buildsInFlight.get(name);
+        if (latch == null) {
+            return null;
+        }
+        latch.await();
+        return lookup(name);
+    }
+
+    /**
+     * Like {@link #awaitBuild(String)}, but gives up and returns null once {@code abandoned} returns true.
+     */
+    public Path awaitBuild(String name, BooleanSupplier abandoned) throws InterruptedException {
+        CountDownLatch latch = buildsInFlight.get(name);
+        if (latch == null) {
+            return null;
+        }
+        while (!latch.await(ABANDON_POLL_MS, TimeUnit.MILLISECONDS)) {
+            if (abandoned.getAsBoolean()) {
+                return null;
+            }
+        }
+        return lookup(name);
+    }
+
+    /**
+     * Returns a fresh path inside the store for a compiler to write an artifact to before it is committed.
+     */
+    public Path newStagingPath(String suffix) throws IOException {
+        Files.createDirectories(root);
+        Path staging = Files.createTempFile(root, STAGING_PREFIX, suffix);
+        Files.delete(staging);
+        return staging;
+    }
+
+    /**
+     * Moves a freshly built artifact into the store under the given name and evicts old entries if needed.
+     */
+    public Path store(String name, Path builtArtifact) throws IOException {
+        Path artifact = root.resolve(name);
+        try {
+            Files.move(builtArtifact, artifact, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(builtArtifact, artifact, StandardCopyOption.REPLACE_EXISTING);
+        }
+        evict(name);
+        return artifact;
+    }
+
+    public void discard(Path staging) {
+        if (staging == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(staging);
+        } catch (IOException e) {
+            System.err.println("Could not delete staging artifact: " + e.getMessage());
+        }
+    }
+
+    private void sweepStaging() {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        long staleBefore = System.currentTimeMillis() - STALE_STAGING_MS;
+        try (Stream<Path> entries = Files.list(root)) {
+            for (Path entry : (Iterable<Path>) entries::iterator) {
+                if (entry.getFileName().toString().startsWith(STAGING_PREFIX) && Files.isRegularFile(entry)
+                        && lastUsed(entry) < staleBefore) {
+                    discard(entry);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Could not sweep staging artifacts: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes least recently used artifacts until the store fits its budget. The artifact named
+     * {@code keep}, which was just stored, counts towards the budget but is never deleted.
+     */
+    private synchronized void evict(String keep) throws IOException {
+        List<Path> artifacts = new ArrayList<>();
+        long totalBytes = 0;
+        try (Stream<Path> entries = Files.list(root)) {
+            for (Path entry : (Iterable<Path>) entries::iterator) {
+                if (Files.isRegularFile(entry) && !entry.getFileName().toString().startsWith(STAGING_PREFIX)) {
+                    artifacts.add(entry);
+                    totalBytes += Files.size(entry);
+                }
+            }
+        }
+        if (totalBytes <= maxBytes) {
+            return;
+        }
+
+        artifacts.sort(Comparator.comparingLong(ArtifactCache::lastUsed));
+        for (Path artifact : artifacts) {
+            if (totalBytes <= maxBytes) {
+                break;
+            }
+            if (artifact.getFileName().toString().equals(keep)) {
+                continue;
+            }
+            long size = Files.size(artifact);
+            if (Files.deleteIfExists(artifact)) {
+                totalBytes -= size;
+            }
+        }
+    }
+
+    private static long lastUsed(Path artifact) {
+        try {
+            return Files.getLastModifiedTime(artifact).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
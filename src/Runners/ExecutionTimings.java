@@ -0,0 +1,102 @@
+package Runners;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * Remembers how long each execution strategy took for scripts of similar size, as an exponentially
+ * weighted average per size bucket. The first recording of a strategy in a bucket usually pays for cold
+ * caches, so the second one replaces it rather than being averaged in. Timings are persisted to a
+ * properties file so choices carry over between sessions.
+ */
+public class ExecutionTimings {
+    private static final double SMOOTHING = 0.3;
+    private static final int BUCKET_UNIT = 256;
+
+    private final Path file;
+    private final Properties averages = new Properties();
+
+    public ExecutionTimings(Path file) {
+        this.file = file;
+        if (Files.isRegularFile(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                averages.load(in);
+            } catch (IOException e) {
+                System.err.println("Could not read execution timings: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Groups source lengths by powers of two, starting at 256 characters.
+     */
+    public static int sizeBucket(int sourceLength) {
+        return 32 - Integer.numberOfLeadingZeros(sourceLength / BUCKET_UNIT);
+    }
+
+    /**
+     * Returns the average turnaround in milliseconds for the strategy and bucket, or -1 if never recorded.
+     */
+    public synchronized long estimate(String strategy, int bucket) {
+        String value = averages.getProperty(strategy + "." + bucket);
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Math.round(Double.parseDouble(value));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public synchronized void record(String strategy, int bucket, long millis) {
+        String key = strategy + "." + bucket;
+        long previous = estimate(strategy, bucket);
+        long samples = count(key + ".samples");
+        double average = samples <= 1 ? millis : previous + SMOOTHING * (millis - previous);
+        long runs = count("runs." + bucket) + 1;
+        averages.setProperty(key, Double.toString(average));
+        averages.setProperty(key + ".samples", Long.toString(samples + 1));
+        averages.setProperty(key + ".lastRun", Long.toString(runs));
+        averages.setProperty("runs." + bucket, Long.toString(runs));
+        save();
+    }
+
+    /**
+     * Returns how many runs have been recorded in the bucket since the strategy was last recorded there.
+     */
+    public synchronized long runsSince(String strategy, int bucket) {
+        return count("runs." + bucket) - count(strategy + "." + bucket + ".lastRun");
+    }
+
+    private long count(String key) {
+        try {
+            return Long.parseLong(averages.getProperty(key, "0"));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private void save() {
+        try {
+            Files.createDirectories(file.getParent());
+            Path temp = Files.createTempFile(file.getParent(), "timings_", ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                averages.store(out, "Average turnaround per execution strategy and source size bucket");
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            System.err.println("Could not save execution timings: " + e.getMessage());
+        }
+    }
+}
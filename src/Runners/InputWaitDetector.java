@@ -0,0 +1,166 @@
+package Runners;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+
+/**
+ * Detects that a script process is blocked reading its standard input by sampling /proc on Linux.
+ * <p>
+ * Every thread of the process and of its descendants is checked: a thread counts as waiting for input
+ * when it is sleeping inside a read-family system call on a descriptor that refers to the same pipe as
+ * the script's fd 0. Unlike an output-inactivity guess, this never fires while the script is computing.
+ */
+public class InputWaitDetector {
+    public static final long PROBE_INTERVAL_MS = 10;
+
+    private static final Path PROC = Paths.get("/proc");
+    private static final int[] READ_SYSCALLS = readSyscallNumbers();
+
+    private final Process process;
+    private final String stdinTarget;
+    private volatile boolean usable = true;
+
+    private InputWaitDetector(Process process, String stdinTarget) {
+        this.process = process;
+        this.stdinTarget = stdinTarget;
+    }
+
+    /**
+     * Returns a detector for the given process, or null when /proc sampling is not available for it,
+     * in which case callers should fall back to their own heuristic.
+     */
+    public static InputWaitDetector forProcess(Process process) {
+        if (READ_SYSCALLS.length == 0 || !Files.isDirectory(PROC.resolve("self/task"))) {
+            return null;
+        }
+        try {
+            Path processDir = PROC.resolve(Long.toString(process.pid()));
+            String stdinTarget = Files.readSymbolicLink(processDir.resolve("fd/0")).toString();
+            Files.readAllBytes(processDir.resolve("syscall"));
+            return new InputWaitDetector(process, stdinTarget);
+        } catch (IOException | SecurityException e) {
+            return null;
+        }
+    }
+
+    /**
+     * False once sampling has failed, for example because the process tree changed owner.
+     */
+    public boolean isUsable() {
+        return usable;
+    }
+
+    public boolean isWaitingForInput() {
+        if (!usable || !process.isAlive()) {
+            return false;
+        }
+        try {
+            if (isBlockedOnStdin(process.pid())) {
+                return true;
+            }
+            Iterator<ProcessHandle> descendants = process.descendants().iterator();
+            while (descendants.hasNext()) {
+                if (isBlockedOnStdin(descendants.next().pid())) {
+                    return true;
+                }
+            }
+        } catch (IOException e) {
+            if (process.isAlive()) {
+                System.err.println("Input wait detection disabled: " + e.getMessage());
+                usable = false;
+            }
+        }
+        return false;
+    }
+
+    private boolean isBlockedOnStdin(long pid) throws IOException {
+        Path processDir = PROC.resolve(Long.toString(pid));
+        try (DirectoryStream<Path> tasks = Files.newDirectoryStream(processDir.resolve("task"))) {
+            for (Path task : tasks) {
+                int fd = readingDescriptor(task);
+                if (fd >= 0 && isSleeping(task) && refersToStdin(processDir, fd)) {
+                    return true;
+                }
+            }
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the descriptor a thread is currently reading from, or -1 if it is not in a read call.
+     * The syscall file holds the call number followed by its arguments in hex, or "running".
+     */
+    private static int readingDescriptor(Path task) throws IOException {
+        String syscall;
+        try {
+            syscall = new String(Files.readAllBytes(task.resolve("syscall"))).trim();
+        } catch (NoSuchFileException e) {
+            return -1;
+        }
+        int space = syscall.indexOf(' ');
+        if (space < 0) {
+            return -1;
+        }
+        int number;
+        try {
+            number = Integer.parseInt(syscall.substring(0, space));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+        for (int readSyscall : READ_SYSCALLS) {
+            if (number == readSyscall) {
+                int argEnd = syscall.indexOf(' ', space + 1);
+                String fd = syscall.substring(space + 1, argEnd < 0 ? syscall.length() : argEnd);
+                try {
+                    return (int) Long.parseLong(fd.startsWith("0x") ? fd.substring(2) : fd, 16);
+                } catch (NumberFormatException e) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isSleeping(Path task) throws IOException {
+        String stat;
+        try {
+            stat = new String(Files.readAllBytes(task.resolve("stat")));
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        int commEnd = stat.lastIndexOf(')');
+        return commEnd >= 0 && commEnd + 2 < stat.length() && stat.charAt(commEnd + 2) == 'S';
+    }
+
+    private boolean refersToStdin(Path processDir, int fd) {
+        try {
+            return stdinTarget.equals(Files.readSymbolicLink(processDir.resolve("fd/" + fd)).toString());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Numbers of read, pread64, readv and preadv for the running architecture, or none if unknown.
+     */
+    private static int[] readSyscallNumbers() {
+        String arch = System.getProperty("os.arch", "");
+        if (!System.getProperty("os.name", "").startsWith("Linux")) {
+            return new int[0];
+        }
+        if (arch.equals("amd64") || arch.equals("x86_64")) {
+            return new int[]{0, 17, 19, 295};
+        }
+        if (arch.equals("aarch64") || arch.equals("riscv64")) {
+            return new int[]{63, 67, 65, 69};
+        }
+        return new int[0];
+    }
+}
@@ -0,0 +1,344 @@
+package Runners;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Keeps a pre-warmed Kotlin compiler host and a spare script host running in the background,
+ * so repeated Kotlin runs skip JVM startup and compiler class loading.
+ * Hosts that die while the daemon is enabled are restarted automatically.
+ * <p>
+ * The compiler host serves numbered requests concurrently, so a run never queues behind a speculative
+ * build, and an abandoned request is cancelled in the host rather than by restarting it.
+ */
+public class KotlinDaemon {
+    private static final long RESTART_DELAY_MS = 1000;
+    private static final String WARM_UP_SCRIPT = "println(\"warm\")\n";
+
+    private static KotlinDaemon shared;
+
+    private final KotlinInstallation installation;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicLong nextRequestId = new AtomicLong();
+    private final Map<Long, PendingCompile> pendingCompiles = new ConcurrentHashMap<>();
+
+    private volatile boolean enabled = false;
+
+    private Process compilerHost;
+    private BufferedWriter compilerRequests;
+    private Process spareRunHost;
+
+    private static class PendingCompile {
+        final Process host;
+        final Thread owner;
+        final List<String> messages = new ArrayList<>();
+        final CompletableFuture<Integer> exitCode = new CompletableFuture<>();
+
+        PendingCompile(Process host, Thread owner) {
+            this.host = host;
+            this.owner = owner;
+        }
+    }
+
+    private KotlinDaemon(KotlinInstallation installation) {
+        this.installation = installation;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "kotlin-daemon");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns the daemon for the local Kotlin installation, or null if Kotlin cannot be located.
+     */
+    public static synchronized KotlinDaemon shared() {
+        if (shared == null) {
+            KotlinInstallation installation = KotlinInstallation.locate();
+            if (installation == null) {
+                return null;
+            }
+            shared = new KotlinDaemon(installation);
+        }
+        return shared;
+    }
+
+    /**
+     * Shuts down the shared daemon if one has been created, without locating Kotlin otherwise.
+     */
+    public static synchronized void shutdownShared() {
+        if (shared != null) {
+            shared.shutdown();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts both hosts in the background. Calling this while already enabled does nothing.
+     */
+    public synchronized void start() {
+        if (enabled) {
+            return;
+        }
+        enabled = true;
+        scheduler.execute(this::startSpareRunHost);
+        scheduler.execute(this::startCompilerHost);
+    }
+
+    public synchronized void stop() {
+        enabled = false;
+        destroy(compilerHost);
+        destroy(spareRunHost);
+        compilerHost = null;
+        compilerRequests = null;
+        spareRunHost = null;
+    }
+
+    public void shutdown() {
+        stop();
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Compiles through the warm compiler host. Compiler messages are added to {@code messages}. Interrupting
+     * the calling thread cancels the request in the host.
+     *
+     * @throws IOException if the host is not available, in which case the caller should compile out of process
+     */
+    public int compile(List<String> args, List<String> messages) throws IOException, InterruptedException {
+        long id = nextRequestId.incrementAndGet();
+        PendingCompile pending;
+        synchronized (this) {
+            if (!enabled || compilerHost == null || !compilerHost.isAlive()) {
+                throw new IOException("Kotlin compiler host is not running");
+            }
+            pending = new PendingCompile(compilerHost, Thread.currentThread());
+            pendingCompiles.put(id, pending);
+            try {
+                send(id + WarmHost.ARG_SEPARATOR + String.join(WarmHost.ARG_SEPARATOR, args));
+            } catch (IOException e) {
+                pendingCompiles.remove(id);
+                throw e;
+            }
+        }
+        try {
+            int exitCode = pending.exitCode.get();
+            messages.addAll(pending.messages);
+            return exitCode;
+        } catch (InterruptedException e) {
+            cancel(id);
+            throw e;
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        } finally {
+            pendingCompiles.remove(id);
+        }
+    }
+
+    /**
+     * Abandons the compilation the given thread is waiting for, if any. The host cancels the request and
+     * that compile call fails; the host itself keeps running.
+     */
+    public void abortCompile(Thread owner) {
+        pendingCompiles.forEach((id, pending) -> {
+            if (pending.owner == owner) {
+                cancel(id);
+                pending.exitCode.completeExceptionally(new IOException("Kotlin compile abandoned"));
+            }
+        });
+    }
+
+    private synchronized void cancel(long id) {
+        if (pendingCompiles.remove(id) == null || compilerRequests == null) {
+            return;
+        }
+        try {
+            send(WarmHost.CANCEL_MARKER + id);
+        } catch (IOException e) {
+            System.err.println("Could not cancel Kotlin compile: " + e.getMessage());
+        }
+    }
+
+    private void send(String line) throws IOException {
+        compilerRequests.write(line);
+        compilerRequests.newLine();
+        compilerRequests.flush();
+    }
+
+    /**
+     * Hands each reply of a compiler host to the compile call waiting for it, until the host exits.
+     */
+    private void readReplies(Process host, BufferedReader replies) {
+        List<String> messages = new ArrayList<>();
+        try {
+            String line;
+            while ((line = replies.readLine()) != null) {
+                if (!line.startsWith(WarmHost.EXIT_MARKER)) {
+                    messages.add(line);
+                    continue;
+                }
+                String[] reply = line.substring(WarmHost.EXIT_MARKER.length()).trim().split(" ");
+                PendingCompile pending = pendingCompiles.get(Long.parseLong(reply[0]));
+                if (pending != null) {
+                    pending.messages.addAll(messages);
+                    pending.exitCode.complete(Integer.parseInt(reply[1]));
+                }
+                messages = new ArrayList<>();
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Could not read Kotlin compiler host reply: " + e.getMessage());
+        }
+        pendingCompiles.values().forEach(pending -> {
+            if (pending.host == host) {
+                pending.exitCode.completeExceptionally(
+                        new IOException("Kotlin compiler host exited during compilation"));
+            }
+        });
+    }
+
+    /**
+     * Hands over the pre-started script host and starts its replacement in the background.
+     * The caller must send the jar to run with {@link #sendRunRequest}.
+     */
+    public synchronized Process takeRunHost() throws IOException {
+        Process host = spareRunHost;
+        spareRunHost = null;
+        if (host == null || !host.isAlive()) {
+            host = launchRunHost();
+        }
+        if (enabled) {
+            scheduler.execute(this::startSpareRunHost);
+        }
+        return host;
+    }
+
+    public static void sendRunRequest(Process host, Path jarPath, String className) throws IOException {
+        OutputStream stdin = host.getOutputStream();
+        stdin.write((jarPath + WarmHost.ARG_SEPARATOR + className + "\n").getBytes(StandardCharsets.UTF_8));
+        stdin.flush();
+    }
+
+    private void startCompilerHost() {
+        String classpath = installation.compilerClasspath();
+        if (classpath == null) {
+            return;
+        }
+        Process host;
+        synchronized (this) {
+            if (!enabled || (compilerHost != null && compilerHost.isAlive())) {
+                return;
+            }
+            try {
+                ProcessBuilder builder = new ProcessBuilder(
+                        KotlinInstallation.javaExecutable(),
+                        "-Dkotlin.home=" + installation.getHome(),
+                        "-cp", classpath,
+                        WarmHost.class.getName(),
+                        WarmHost.MODE_COMPILE
+                );
+                builder.redirectError(ProcessBuilder.Redirect.DISCARD);
+                host = builder.start();
+            } catch (IOException e) {
+                System.err.println("Could not start Kotlin compiler host: " + e.getMessage());
+                return;
+            }
+            compilerHost = host;
+            compilerRequests = new BufferedWriter(new OutputStreamWriter(host.getOutputStream(), StandardCharsets.UTF_8));
+        }
+        BufferedReader replies = new BufferedReader(new InputStreamReader(host.getInputStream(), StandardCharsets.UTF_8));
+        Thread replyReader = new Thread(() -> readReplies(host, replies), "kotlin-compiler-replies");
+        replyReader.setDaemon(true);
+        replyReader.start();
+        host.onExit().thenRun(() -> restartIfCurrent(host, true));
+        warmUpCompiler();
+    }
+
+    private void warmUpCompiler() {
+        Path workDir = null;
+        try {
+            workDir = Files.createTempDirectory("kotlin_warmup_");
+            Path source = workDir.resolve("WarmUp.kts");
+            Files.writeString(source, WARM_UP_SCRIPT);
+            List<String> args = new ArrayList<>(KotlinRunner.COMPILE_FLAGS);
+            args.add(source.toString());
+            args.add("-d");
+            args.add(workDir.resolve("out").toString());
+            compile(args, new ArrayList<>());
+        } catch (IOException e) {
+            System.err.println("Kotlin compiler warm-up failed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (workDir != null) {
+                try (Stream<Path> entries = Files.walk(workDir)) {
+                    entries.sorted(Comparator.reverseOrder()).forEach(entry -> entry.toFile().delete());
+                } catch (IOException e) {
+                    System.err.println("Could not delete warm-up directory: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void startSpareRunHost() {
+        Process host;
+        synchronized (this) {
+            if (!enabled || (spareRunHost != null && spareRunHost.isAlive())) {
+                return;
+            }
+            try {
+                host = launchRunHost();
+            } catch (IOException e) {
+                System.err.println("Could not start Kotlin script host: " + e.getMessage());
+                return;
+            }
+            spareRunHost = host;
+        }
+        host.onExit().thenRun(() -> restartIfCurrent(host, false));
+    }
+
+    private Process launchRunHost() throws IOException {
+        ProcessBuilder builder = new ProcessBuilder(
+                KotlinInstallation.javaExecutable(),
+                "-cp", installation.runtimeClasspath(),
+                WarmHost.class.getName(),
+                WarmHost.MODE_RUN
+        );
+        return builder.start();
+    }
+
+    private synchronized void restartIfCurrent(Process host, boolean compiler) {
+        if (!enabled || scheduler.isShutdown()) {
+            return;
+        }
+        if (compiler && host == compilerHost) {
+            compilerHost = null;
+            scheduler.schedule(this::startCompilerHost, RESTART_DELAY_MS, TimeUnit.MILLISECONDS);
+        } else if (!compiler && host == spareRunHost) {
+            spareRunHost = null;
+            scheduler.schedule(this::startSpareRunHost, RESTART_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static void destroy(Process process) {
+        if (process != null) {
+            ProcessTree.of(process).terminate();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package Runners;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Locates the local Kotlin compiler distribution and builds the classpaths needed to run
+ * compiled scripts and the in-process compiler outside of the {@code kotlinc} launcher script.
+ */
+public class KotlinInstallation {
+    private static final String[] RUNTIME_JARS = {"kotlin-stdlib.jar", "kotlin-script-runtime.jar", "kotlin-reflect.jar"};
+    private static final String COMPILER_JAR = "kotlin-compiler.jar";
+
+    private static KotlinInstallation located;
+    private static boolean searched = false;
+
+    private final Path home;
+    private final List<String> runtimeJars;
+
+    private KotlinInstallation(Path home, List<String> runtimeJars) {
+        this.home = home;
+        this.runtimeJars = runtimeJars;
+    }
+
+    /**
+     * Returns the installation found through KOTLIN_HOME or the kotlinc on the PATH, or null if there is none.
+     */
+    public static synchronized KotlinInstallation locate() {
+        if (searched) {
+            return located;
+        }
+        searched = true;
+
+        Path home = null;
+        String kotlinHomeEnv = System.getenv("KOTLIN_HOME");
+        if (kotlinHomeEnv != null && !kotlinHomeEnv.isEmpty()) {
+            home = Paths.get(kotlinHomeEnv);
+        } else {
+            String path = System.getenv("PATH");
+            if (path != null) {
+                for (String dir : path.split(File.pathSeparator)) {
+                    Path kotlinc = Paths.get(dir, "kotlinc");
+                    if (Files.isExecutable(kotlinc)) {
+                        try {
+                            home = kotlinc.toRealPath().getParent().getParent();
+                        } catch (IOException e) {
+                            home = null;
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+        if (home == null) {
+            return null;
+        }
+
+        List<String> runtimeJars = new ArrayList<>();
+        for (String jar : RUNTIME_JARS) {
+            Path jarPath = home.resolve("lib").resolve(jar);
+            if (Files.isRegularFile(jarPath)) {
+                runtimeJars.add(jarPath.toString());
+            }
+        }
+        if (runtimeJars.isEmpty()) {
+            return null;
+        }
+        located = new KotlinInstallation(home, runtimeJars);
+        return located;
+    }
+
+    public Path getHome() {
+        return home;
+    }
+
+    /**
+     * Classpath for running a compiled script through {@link ScriptLauncher} or {@link WarmHost}.
+     */
+    public String runtimeClasspath() {
+        List<String> classpath = new ArrayList<>(runtimeJars);
+        classpath.addAll(toolClasspath());
+        return String.join(File.pathSeparator, classpath);
+    }
+
+    /**
+     * Classpath for hosting the compiler in a {@link WarmHost}, or null if the compiler jar is missing.
+     */
+    public String compilerClasspath() {
+        Path compilerJar = home.resolve("lib").resolve(COMPILER_JAR);
+        if (!Files.isRegularFile(compilerJar)) {
+            return null;
+        }
+        List<String> classpath = new ArrayList<>();
+        classpath.add(compilerJar.toString());
+        classpath.addAll(toolClasspath());
+        return String.join(File.pathSeparator, classpath);
+    }
+
+    public static String javaExecutable() {
+        return Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+    }
+
+    private static List<String> toolClasspath() {
+        List<String> classpath = new ArrayList<>();
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            classpath.add(Paths.get(entry).toAbsolutePath().toString());
+        }
+        return classpath;
+    }
+}
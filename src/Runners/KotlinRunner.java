@@ -1,16 +1,29 @@
 package Runners;
 
-import javax.swing.*;
 import java.io.*;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public class KotlinRunner implements ScriptRunner {
 
+    static final List<String> COMPILE_FLAGS = List.of("-Xallow-any-scripts-in-source-roots");
+    private static final String SCRIPT_CLASS_NAME = "Script";
+
     private Process currentProcess;
-    private ExecutorService executorService;
+    /** The compiler or script process tree of the current run, whichever is running. */
+    private volatile ProcessTree activeTree;
+    /** The warm daemon compiling for the current run and the thread waiting for it, if any. */
+    private volatile KotlinDaemon compilingDaemon;
+    private volatile Thread daemonCompileThread;
+    private volatile boolean stopRequested = false;
+    private final ExecutorService executorService;
+    private final boolean ownsExecutor;
     private volatile boolean running = false;
     private volatile boolean outputLimitReached = false;
     private volatile boolean waitingForInput = false;
@@ -18,16 +31,38 @@ public class KotlinRunner implements ScriptRunner {
     private OutputStreamWriter processInput;
     private Runnable inputRequiredCallback;
 
-    private int maxOutputLines = 1000;
+    private static final int MIN_BUFFER_BYTES = 64 * 1024;
+    /** Lines of history kept in memory; older ones spill to disk, so this only bounds the heap. */
+    private static final int MAX_HISTORY_LINES = 20000;
+    private static final long INACTIVITY_TICK_MS = 50;
+    private static final long INACTIVITY_THRESHOLD_MS = 500;
+
+    private int maxOutputLines = Integer.MAX_VALUE;
 
-    private Queue<String> outputBuffer = new LinkedList<>();
+    private LineRingBuffer outputBuffer;
+    private volatile RunStats lastRunStats;
     private long totalLines = 0;
+    private long stdoutLines = 0;
     private long droppedLines = 0;
+    private long outputBytes = 0;
+    private long firstOutputNanos = 0;
 
     private boolean containsReadLine = false;
 
+    private final ArtifactCache artifactCache = ArtifactCache.shared();
+    private static volatile boolean daemonMode = false;
+
     public KotlinRunner() {
         executorService = Executors.newFixedThreadPool(2);
+        ownsExecutor = true;
+    }
+
+    /**
+     * Creates a runner that reads process output on the given executor, which the caller keeps ownership of.
+     */
+    public KotlinRunner(ExecutorService executorService) {
+        this.executorService = executorService;
+        ownsExecutor = false;
     }
 
     @Override
@@ -35,6 +70,62 @@ public class KotlinRunner implements ScriptRunner {
         this.inputRequiredCallback = callback;
     }
 
+    @Override
+    public boolean precompile(String scriptContent) {
+        if (KotlinInstallation.locate() == null) {
+            return false;
+        }
+        String artifactName = ArtifactCache.key(
+                scriptContent,
+                ArtifactCache.compilerVersion("kotlinc", "-version"),
+                COMPILE_FLAGS
+        ) + ".jar";
+        if (artifactCache.lookup(artifactName) != null) {
+            return true;
+        }
+        if (!artifactCache.beginBuild(artifactName)) {
+            return false;
+        }
+        try {
+            KotlinDaemon daemon = daemonMode ? KotlinDaemon.shared() : null;
+            return compileToCache(scriptContent, artifactName, daemon, new ArrayList<>(), new int[1], true) != null;
+        } catch (IOException e) {
+            System.err.println("Speculative Kotlin build failed: " + e.getMessage());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            artifactCache.endBuild(artifactName);
+        }
+    }
+
+    /**
+     * Kotlin has no separate type-check mode, so this compiles the script to a scratch directory that is
+     * thrown away afterwards.
+     */
+    @Override
+    public int typecheck(String scriptContent, List<String> messages) throws IOException, InterruptedException {
+        if (KotlinInstallation.locate() == null) {
+            return 0;
+        }
+        Path workDir = Files.createTempDirectory("kotlin_check_");
+        try {
+            Path sourcePath = workDir.resolve(SCRIPT_CLASS_NAME + ".kts");
+            Files.writeString(sourcePath, scriptContent);
+
+            List<String> compileArgs = new ArrayList<>(COMPILE_FLAGS);
+            compileArgs.add(sourcePath.toString());
+            compileArgs.add("-d");
+            compileArgs.add(workDir.resolve("classes").toString());
+
+            KotlinDaemon daemon = daemonMode ? KotlinDaemon.shared() : null;
+            return compile(daemon, compileArgs, messages, workDir.resolve("compile.log"), true);
+        } finally {
+            deleteWorkDir(workDir);
+        }
+    }
+
     @Override
     public boolean sendInput(String input) {
         if (!running || currentProcess == null || !currentProcess.isAlive() || processInput == null) {
@@ -53,7 +144,7 @@ public class KotlinRunner implements ScriptRunner {
     }
 
     @Override
-    public int runScript(String scriptContent, Consumer<String> outputConsumer, Consumer<String> errorConsumer) {
+    public int runScript(String scriptContent, Consumer<OutputChunk> outputConsumer, Consumer<String> errorConsumer) {
         containsReadLine = scriptContent.contains("readLine()");
         if (running) {
             errorConsumer.accept("A script is already running");
@@ -61,150 +152,156 @@ public class KotlinRunner implements ScriptRunner {
         }
 
         running = true;
+        stopRequested = false;
         waitingForInput = false;
         outputLimitReached = false;
         totalLines = 0;
+        stdoutLines = 0;
         droppedLines = 0;
-        outputBuffer.clear();
+        outputBytes = 0;
+        firstOutputNanos = 0;
+        closeOutputBuffer();
+        int historyLines = Math.min(maxOutputLines, MAX_HISTORY_LINES);
+        outputBuffer = new LineRingBuffer(historyLines, Math.max(MIN_BUFFER_BYTES, historyLines * 128));
+        final LineRingBuffer history = outputBuffer;
 
         final int[] exitCode = {-1};
+        boolean cacheHit = false;
+        long compileNanos = 0;
+        long runStartNanos = 0;
+        long runEndNanos = 0;
+        ProcessMeter meter = null;
         File tempFile = null;
         try {
-            tempFile = File.createTempFile("kotlin_script_", ".kts");
-            tempFile.deleteOnExit();
-            try (FileWriter writer = new FileWriter(tempFile)) {
-                writer.write(scriptContent);
-            }
+            KotlinInstallation installation = KotlinInstallation.locate();
+            KotlinDaemon daemon = daemonMode ? KotlinDaemon.shared() : null;
+            boolean warmHost = false;
+
+            if (installation == null) {
+                tempFile = File.createTempFile("kotlin_script_", ".kts");
+                tempFile.deleteOnExit();
+                try (FileWriter writer = new FileWriter(tempFile)) {
+                    writer.write(scriptContent);
+                }
+                ProcessBuilder processBuilder = new ProcessBuilder("kotlinc", "-script", tempFile.getAbsolutePath());
+                runStartNanos = System.nanoTime();
+                if (stopRequested) {
+                    return -1;
+                }
+                currentProcess = processBuilder.start();
+            } else {
+                String artifactName = ArtifactCache.key(
+                        scriptContent,
+                        ArtifactCache.compilerVersion("kotlinc", "-version"),
+                        COMPILE_FLAGS
+                ) + ".jar";
+                Path jarPath = artifactCache.lookup(artifactName);
+                if (jarPath == null) {
+                    long waitStart = System.nanoTime();
+                    jarPath = artifactCache.awaitBuild(artifactName, () -> stopRequested);
+                    compileNanos = System.nanoTime() - waitStart;
+                }
+                if (stopRequested) {
+                    return -1;
+                }
+                cacheHit = jarPath != null;
+
+                if (jarPath == null) {
+                    long compileStart = System.nanoTime();
+                    List<String> compileOutput = new ArrayList<>();
+                    int[] compileExit = {0};
+                    jarPath = compileToCache(scriptContent, artifactName, daemon, compileOutput, compileExit, false);
+                    compileNanos += System.nanoTime() - compileStart;
+                    if (stopRequested) {
+                        return -1;
+                    }
+                    if (jarPath == null) {
+                        compileOutput.forEach(errorConsumer);
+                        running = false;
+                        exitCode[0] = compileExit[0];
+                        return compileExit[0];
+                    }
+                }
 
-            ProcessBuilder processBuilder = new ProcessBuilder("kotlinc", "-script", tempFile.getAbsolutePath());
-            processBuilder.redirectErrorStream(true);
-            currentProcess = processBuilder.start();
+                runStartNanos = System.nanoTime();
+                if (stopRequested) {
+                    return -1;
+                }
+                if (daemon != null && daemon.isEnabled()) {
+                    currentProcess = daemon.takeRunHost();
+                    warmHost = true;
+                    KotlinDaemon.sendRunRequest(currentProcess, jarPath, SCRIPT_CLASS_NAME);
+                } else {
+                    ProcessBuilder processBuilder = new ProcessBuilder(
+                            KotlinInstallation.javaExecutable(),
+                            "-cp", jarPath + File.pathSeparator + installation.runtimeClasspath(),
+                            ScriptLauncher.class.getName(),
+                            SCRIPT_CLASS_NAME
+                    );
+                    currentProcess = processBuilder.start();
+                }
+            }
+            ProcessTree tree = ProcessTree.of(currentProcess);
+            activeTree = tree;
+            if (stopRequested) {
+                tree.terminate();
+            }
             processInput = new OutputStreamWriter(currentProcess.getOutputStream());
+            meter = ProcessMeter.forProcess(currentProcess);
+            if (meter != null && warmHost) {
+                // Warm hosts were started before this run; only count what the script uses.
+                meter.excludeEarlierCpu();
+            }
 
+            AtomicLong sequence = new AtomicLong();
             if (containsReadLine) {
-                outputConsumer.accept("Note: Script contains readLine() calls. You'll be prompted for input when needed.");
+                outputConsumer.accept(new OutputChunk(OutputChunk.Stream.STDOUT, sequence.getAndIncrement(),
+                        System.nanoTime(), "Note: Script contains readLine() calls. You'll be prompted for input when needed.", 1));
             }
 
-            Future<?> outputFuture = executorService.submit(() -> {
-                try (BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(currentProcess.getInputStream()), 8192)) {
-
-                    StringBuilder batch = new StringBuilder();
-                    int batchSize = 0;
-                    final int MAX_BATCH_SIZE = 50;
-
-                    int ch;
-                    StringBuilder lineBuffer = new StringBuilder();
-                    long lastCharTime = System.currentTimeMillis();
-                    int inactivityCount = 0;
-
-                    while (true) {
-                        if (reader.ready()) {
-                            ch = reader.read();
-                            if (ch == -1) break;
-                            char c = (char) ch;
-                            lineBuffer.append(c);
-
-                            if (c == '\n') {
-                                String currentLine = lineBuffer.toString();
-                                totalLines++;
-
-                                if (outputBuffer.size() >= maxOutputLines && !outputLimitReached) {
-                                    outputLimitReached = true;
-                                    outputConsumer.accept("\n--- Output limit reached ---\n");
-                                }
-
-                                if (outputBuffer.size() >= maxOutputLines) {
-                                    outputBuffer.poll();
-                                    droppedLines++;
-                                    if (totalLines % 1000 == 0) {
-                                        outputBuffer.add(currentLine.trim());
-                                        batch.append(currentLine);
-                                        batchSize++;
-                                    }
-                                } else {
-                                    outputBuffer.add(currentLine.trim());
-                                    batch.append(currentLine);
-                                    batchSize++;
-                                }
-
-                                if (batchSize >= MAX_BATCH_SIZE) {
-                                    String batchOutput = batch.toString();
-                                    if (!batchOutput.isEmpty()) {
-                                        outputConsumer.accept(batchOutput);
-                                        batch.setLength(0);
-                                        batchSize = 0;
-                                    }
-                                }
-                                lastCharTime = System.currentTimeMillis();
-                                inactivityCount = 0;
-                                lineBuffer.setLength(0);
-                            } else {
-                                lastCharTime = System.currentTimeMillis();
-                                inactivityCount = 0;
-                            }
-                        } else {
-                            if (currentProcess.isAlive()) {
-                                long currentTime = System.currentTimeMillis();
-                                if (containsReadLine && !waitingForInput && (currentTime - lastCharTime > 500)) {
-                                    inactivityCount++;
-                                    if (inactivityCount > 3) {
-                                        if (lineBuffer.length() > 0) {
-                                            outputConsumer.accept(lineBuffer.toString());
-                                            lineBuffer.setLength(0);
-                                        }
-                                        System.out.println("[DEBUG] KotlinRunner: Input required detected");
-                                        waitingForInput = true;
-                                        if (inputRequiredCallback != null) {
-                                            SwingUtilities.invokeLater(inputRequiredCallback);
-                                        }
-                                        inactivityCount = 0;
-                                    }
-                                }
-                                try {
-                                    Thread.sleep(50);
-                                } catch (InterruptedException e) {
-                                    Thread.currentThread().interrupt();
-                                }
-                            } else {
-                                int chDrain = reader.read();
-                                if (chDrain == -1) break;
-                                else {
-                                    char c = (char) chDrain;
-                                    lineBuffer.append(c);
-                                    if (c == '\n') {
-                                        String currentLine = lineBuffer.toString();
-                                        totalLines++;
-                                        outputBuffer.add(currentLine.trim());
-                                        batch.append(currentLine);
-                                        batchSize++;
-                                        lineBuffer.setLength(0);
-                                    }
-                                }
-                            }
-                        }
+            OutputPump.Listener listener = new OutputPump.Listener() {
+                @Override
+                public synchronized boolean onLine(OutputPump source, byte[] buffer, int start, int end) {
+                    history.add(buffer, start, end);
+                    if (firstOutputNanos == 0) {
+                        firstOutputNanos = System.nanoTime();
                     }
-
-                    if (lineBuffer.length() > 0) {
-                        outputConsumer.accept(lineBuffer.toString());
+                    totalLines++;
+                    outputBytes += end - start + 1;
+                    if (source.getStream() == OutputChunk.Stream.STDERR) {
+                        // Errors are never thinned out: they are usually few, and hold the crash the user needs.
+                        return true;
                     }
-                    if (batch.length() > 0) {
-                        outputConsumer.accept(batch.toString());
+                    stdoutLines++;
+                    if (stdoutLines <= maxOutputLines) {
+                        return true;
                     }
-                } catch (IOException e) {
-                    if (running) {
-                        errorConsumer.accept("Error reading process output: " + e.getMessage());
+                    if (!outputLimitReached) {
+                        outputLimitReached = true;
+                        source.appendToBatch("\n--- Output limit reached ---\n");
                     }
+                    if (stdoutLines % 1000 == 0) {
+                        return true;
+                    }
+                    droppedLines++;
+                    return false;
                 }
-            });
-
-            exitCode[0] = currentProcess.waitFor();
 
-            try {
-                outputFuture.get(2, TimeUnit.SECONDS);
-            } catch (TimeoutException e) {
-                outputFuture.cancel(true);
-            }
+                @Override
+                public void onBatch(OutputChunk chunk) {
+                    outputConsumer.accept(chunk);
+                }
+            };
+            OutputPump outPump = new OutputPump(currentProcess.getInputStream(), OutputChunk.Stream.STDOUT,
+                    sequence, listener);
+            OutputPump errPump = new OutputPump(currentProcess.getErrorStream(), OutputChunk.Stream.STDERR,
+                    sequence, listener);
+            Future<?> outFuture = executorService.submit(() -> drain(outPump, errorConsumer));
+            Future<?> errFuture = executorService.submit(() -> drain(errPump, errorConsumer));
+
+            exitCode[0] = awaitExit(currentProcess, tree, outPump, errPump, meter);
+            runEndNanos = System.nanoTime();
+            tree.awaitOutputClosed(() -> stopRequested, List.of(outPump, errPump), List.of(outFuture, errFuture));
 
         } catch (IOException e) {
             errorConsumer.accept("I/O error: " + e.getMessage());
@@ -214,11 +311,27 @@ public class KotlinRunner implements ScriptRunner {
         } catch (ExecutionException e) {
             errorConsumer.accept("Error in output processing: " + e.getMessage());
         } finally {
+            if (runStartNanos != 0 && runEndNanos == 0) {
+                runEndNanos = System.nanoTime();
+            }
+            lastRunStats = new RunStats(
+                    exitCode[0],
+                    cacheHit,
+                    TimeUnit.NANOSECONDS.toMillis(compileNanos),
+                    firstOutputNanos == 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(firstOutputNanos - runStartNanos),
+                    TimeUnit.NANOSECONDS.toMillis(runEndNanos - runStartNanos),
+                    meter == null ? -1 : meter.getUserCpuMillis(),
+                    meter == null ? -1 : meter.getSystemCpuMillis(),
+                    meter == null ? -1 : meter.getPeakRssBytes(),
+                    outputBytes,
+                    totalLines,
+                    droppedLines
+            );
             running = false;
             waitingForInput = false;
+            activeTree = null;
             currentProcess = null;
             processInput = null;
-            outputBuffer.clear();
             System.gc();
 
             if (tempFile != null && tempFile.exists()) {
@@ -229,11 +342,90 @@ public class KotlinRunner implements ScriptRunner {
         return exitCode[0];
     }
 
+    private void drain(OutputPump pump, Consumer<String> errorConsumer) {
+        try {
+            pump.pump();
+        } catch (IOException e) {
+            if (running) {
+                errorConsumer.accept("Error reading process output: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Waits for the process to exit. While it runs, input requests are detected from /proc where possible:
+     * the script must be seen blocked reading stdin on two consecutive probes. Elsewhere, a script that
+     * reads input and has been quiet for a while is assumed to be waiting for input. The meter, if any,
+     * samples the process tree's resource use on each wake-up, and the tree records new descendants.
+     */
+    private int awaitExit(Process process, ProcessTree tree, OutputPump outPump, OutputPump errPump,
+                          ProcessMeter meter) throws InterruptedException {
+        InputWaitDetector detector = InputWaitDetector.forProcess(process);
+        int inactivityCount = 0;
+        int blockedCount = 0;
+        while (!process.waitFor(detector != null ? InputWaitDetector.PROBE_INTERVAL_MS : INACTIVITY_TICK_MS,
+                TimeUnit.MILLISECONDS)) {
+            tree.refresh();
+            if (meter != null) {
+                meter.sample();
+            }
+            if (detector != null && !detector.isUsable()) {
+                detector = null;
+            }
+            if (detector != null) {
+                if (waitingForInput || !detector.isWaitingForInput()) {
+                    blockedCount = 0;
+                    continue;
+                }
+                if (++blockedCount < 2) {
+                    continue;
+                }
+                blockedCount = 0;
+            } else {
+                if (!containsReadLine || waitingForInput
+                        || Math.min(outPump.millisSinceLastRead(), errPump.millisSinceLastRead()) <= INACTIVITY_THRESHOLD_MS) {
+                    inactivityCount = 0;
+                    continue;
+                }
+                inactivityCount++;
+                if (inactivityCount <= 3) {
+                    continue;
+                }
+                inactivityCount = 0;
+            }
+
+            errPump.flushPartial();
+            outPump.flushPartial();
+            System.out.println("[DEBUG] KotlinRunner: Input required detected");
+            waitingForInput = true;
+            if (inputRequiredCallback != null) {
+                inputRequiredCallback.run();
+            }
+        }
+        return process.exitValue();
+    }
+
+    /**
+     * Stops the run in whichever phase it is: waiting for a speculative build, compiling or running. A
+     * compiler or script process is terminated with all its descendants, which for {@code kotlinc} includes
+     * the JVM it launches, politely first and forcibly after {@link ProcessTree#GRACE_MS}, without waiting
+     * here. A compilation in the warm daemon is cancelled there, leaving its compiler host running.
+     */
     @Override
     public void stopScript() {
-        if (currentProcess != null) {
-            running = false;
-            currentProcess.destroy();
+        if (!running) {
+            return;
+        }
+        stopRequested = true;
+        running = false;
+        ProcessTree tree = activeTree;
+        if (tree != null) {
+            tree.terminate();
+        }
+        KotlinDaemon daemon = compilingDaemon;
+        Thread compiling = daemonCompileThread;
+        if (daemon != null && compiling != null) {
+            daemon.abortCompile(compiling);
         }
     }
 
@@ -247,7 +439,146 @@ public class KotlinRunner implements ScriptRunner {
         this.maxOutputLines = maxOutputLines;
     }
 
+    @Override
+    public RunStats getLastRunStats() {
+        return lastRunStats;
+    }
+
+    @Override
+    public LineRingBuffer getOutputHistory() {
+        return outputBuffer;
+    }
+
+    private void closeOutputBuffer() {
+        if (outputBuffer != null) {
+            try {
+                outputBuffer.close();
+            } catch (IOException e) {
+                System.err.println("Could not release output history: " + e.getMessage());
+            }
+            outputBuffer = null;
+        }
+    }
+
+    /**
+     * Compiles the script to a jar and stores it in the artifact cache. Returns null if compilation failed,
+     * with the compiler's messages in {@code compileOutput} and its exit code in {@code compileExit[0]}.
+     * Background builds run a compiler process at reduced priority.
+     */
+    private Path compileToCache(String scriptContent, String artifactName, KotlinDaemon daemon,
+                                List<String> compileOutput, int[] compileExit, boolean background)
+            throws IOException, InterruptedException {
+        Path workDir = Files.createTempDirectory("kotlin_script_");
+        Path stagingPath = artifactCache.newStagingPath(".jar");
+        try {
+            Path sourcePath = workDir.resolve(SCRIPT_CLASS_NAME + ".kts");
+            Files.writeString(sourcePath, scriptContent);
+
+            List<String> compileArgs = new ArrayList<>(COMPILE_FLAGS);
+            compileArgs.add(sourcePath.toString());
+            compileArgs.add("-d");
+            compileArgs.add(stagingPath.toString());
+
+            compileExit[0] = compile(daemon, compileArgs, compileOutput, workDir.resolve("compile.log"), background);
+            if (compileExit[0] != 0) {
+                return null;
+            }
+            Path jarPath = artifactCache.store(artifactName, stagingPath);
+            stagingPath = null;
+            return jarPath;
+        } finally {
+            artifactCache.discard(stagingPath);
+            deleteWorkDir(workDir);
+        }
+    }
+
+    /**
+     * Compiles through the warm daemon when it is available, otherwise through a fresh kotlinc process.
+     */
+    private int compile(KotlinDaemon daemon, List<String> compileArgs, List<String> compileOutput, Path compileLog,
+                        boolean background) throws IOException, InterruptedException {
+        if (daemon != null && daemon.isEnabled()) {
+            if (!background) {
+                daemonCompileThread = Thread.currentThread();
+                compilingDaemon = daemon;
+            }
+            try {
+                return daemon.compile(compileArgs, compileOutput);
+            } catch (IOException e) {
+                compileOutput.clear();
+                if (stopRequested) {
+                    return -1;
+                }
+            } finally {
+                compilingDaemon = null;
+                daemonCompileThread = null;
+            }
+        }
+
+        List<String> compileCommand = new ArrayList<>();
+        compileCommand.add("kotlinc");
+        compileCommand.addAll(compileArgs);
+        ProcessBuilder compileBuilder = new ProcessBuilder(
+                background ? ProcessPriority.lowered(compileCommand) : compileCommand);
+        compileBuilder.redirectErrorStream(true);
+        compileBuilder.redirectOutput(compileLog.toFile());
+        Process compileProcess = compileBuilder.start();
+        ProcessTree tree = ProcessTree.of(compileProcess);
+        activeTree = tree;
+        int compileExit;
+        try {
+            if (stopRequested) {
+                tree.terminate();
+            }
+            compileExit = compileProcess.waitFor();
+        } catch (InterruptedException e) {
+            tree.terminateAndWait();
+            throw e;
+        } finally {
+            activeTree = null;
+        }
+        compileOutput.addAll(Files.readAllLines(compileLog));
+        return compileExit;
+    }
+
+    /**
+     * Enables or disables the pre-warmed compiler and script hosts shared by all Kotlin runners.
+     * Enabling starts them eagerly in the background.
+     */
+    public static void setDaemonMode(boolean enabled) {
+        daemonMode = enabled;
+        KotlinDaemon daemon = KotlinDaemon.shared();
+        if (daemon == null) {
+            return;
+        }
+        if (enabled) {
+            daemon.start();
+        } else {
+            daemon.stop();
+        }
+    }
+
+    public static boolean isDaemonMode() {
+        return daemonMode;
+    }
+
+    private void deleteWorkDir(Path workDir) {
+        if (workDir == null) {
+            return;
+        }
+        try (Stream<Path> entries = Files.walk(workDir)) {
+            entries.sorted(Comparator.reverseOrder()).forEach(entry -> entry.toFile().delete());
+        } catch (IOException e) {
+            System.err.println("Could not delete work directory: " + e.getMessage());
+        }
+    }
+
+    @Override
     public void shutdown() {
+        closeOutputBuffer();
+        if (!ownsExecutor) {
+            return;
+        }
         executorService.shutdown();
         try {
             if (!executorService.awaitTermination(5, TimeUnit.SECONDS)) {
@@ -0,0 +1,169 @@
+package Runners;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Keeps the most recent output lines as raw bytes in fixed-size primitive arrays.
+ * Older lines are spilled to a {@link SpillLog}, so the full output of a run stays available
+ * while heap use stays flat no matter how much the script prints. The arrays are allocated by the
+ * first line added and released by {@link #close()}, so an idle buffer costs almost nothing.
+ */
+public class LineRingBuffer implements AutoCloseable {
+    private final int lineCapacity;
+    private final int byteCapacity;
+    private byte[] data;
+    private int[] offsets;
+    private int[] lengths;
+
+    private int head = 0;
+    private int count = 0;
+    private int writePosition = 0;
+    private int usedBytes = 0;
+
+    private SpillLog spillLog;
+    private long spilledLines = 0;
+
+    public LineRingBuffer(int lineCapacity, int byteCapacity) {
+        this.lineCapacity = lineCapacity;
+        this.byteCapacity = byteCapacity;
+    }
+
+    public synchronized void add(byte[] buffer, int start, int end) {
+        if (data == null) {
+            data = new byte[byteCapacity];
+            offsets = new int[lineCapacity];
+            lengths = new int[lineCapacity];
+        }
+        int length = end - start;
+        if (length > data.length) {
+            while (count > 0) {
+                evictOldest();
+            }
+            spill(buffer, start, end);
+            return;
+        }
+
+        if (count == offsets.length) {
+            evictOldest();
+        }
+        int position;
+        while ((position = findSpace(length)) < 0) {
+            evictOldest();
+        }
+
+        System.arraycopy(buffer, start, data, position, length);
+        int slot = (head + count) % offsets.length;
+        offsets[slot] = position;
+        lengths[slot] = length;
+        writePosition = position + length;
+        usedBytes += length;
+        count++;
+    }
+
+    public void add(String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        add(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Total number of lines retained, both in memory and spilled.
+     */
+    public synchronized long getLineCount() {
+        return spilledLines + count;
+    }
+
+    public synchronized long getSpilledLineCount() {
+        return spilledLines;
+    }
+
+    public synchronized String getLine(long line) throws IOException {
+        if (line < spilledLines) {
+            return new String(spillLog.readLine(line), StandardCharsets.UTF_8);
+        }
+        int ringIndex = (int) (line - spilledLines);
+        if (ringIndex < 0 || ringIndex >= count) {
+            throw new IndexOutOfBoundsException("Line " + line + " of " + getLineCount());
+        }
+        int slot = (head + ringIndex) % offsets.length;
+        return new String(data, offsets[slot], lengths[slot], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes the complete retained output, spilled lines first, to the given stream.
+     */
+    public synchronized void writeTo(OutputStream out) throws IOException {
+        if (spillLog != null) {
+            spillLog.writeTo(out);
+        }
+        for (int i = 0; i < count; i++) {
+            int slot = (head + i) % offsets.length;
+            out.write(data, offsets[slot], lengths[slot]);
+            out.write('\n');
+        }
+    }
+
+    public void export(Path target) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(target))) {
+            writeTo(out);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        head = 0;
+        count = 0;
+        writePosition = 0;
+        usedBytes = 0;
+        spilledLines = 0;
+        data = null;
+        offsets = null;
+        lengths = null;
+        if (spillLog != null) {
+            spillLog.close();
+            spillLog = null;
+        }
+    }
+
+    /**
+     * Returns where a line of the given length can be written without overwriting live lines, or -1.
+     */
+    private int findSpace(int length) {
+        if (count == 0) {
+            writePosition = 0;
+            return 0;
+        }
+        int oldest = offsets[head];
+        if (writePosition > oldest || (writePosition == oldest && usedBytes == 0)) {
+            if (data.length - writePosition >= length) {
+                return writePosition;
+            }
+            return length <= oldest ? 0 : -1;
+        }
+        return oldest - writePosition >= length ? writePosition : -1;
+    }
+
+    private void evictOldest() {
+        spill(data, offsets[head], offsets[head] + lengths[head]);
+        usedBytes -= lengths[head];
+        head = (head + 1) % offsets.length;
+        count--;
+    }
+
+    private void spill(byte[] buffer, int start, int end) {
+        try {
+            if (spillLog == null) {
+                spillLog = new SpillLog();
+            }
+            spillLog.append(buffer, start, end);
+        } catch (IOException e) {
+            System.err.println("Could not spill output line: " + e.getMessage());
+            return;
+        }
+        spilledLines++;
+    }
+}
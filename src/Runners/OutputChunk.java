@@ -0,0 +1,58 @@
+package Runners;
+
+/**
+ * Lines a script wrote to one of its output streams, stamped when they were read.
+ * <p>
+ * The pumps of a run share one sequence counter, so sorting the chunks of both streams by sequence
+ * restores the order in which their output was read.
+ */
+public class OutputChunk {
+    public enum Stream {
+        STDOUT,
+        STDERR
+    }
+
+    private final Stream stream;
+    private final long sequence;
+    private final long nanos;
+    private final String text;
+    private final int lineCount;
+
+    public OutputChunk(Stream stream, long sequence, long nanos, String text, int lineCount) {
+        this.stream = stream;
+        this.sequence = sequence;
+        this.nanos = nanos;
+        this.text = text;
+        this.lineCount = lineCount;
+    }
+
+    public Stream getStream() {
+        return stream;
+    }
+
+    public boolean isError() {
+        return stream == Stream.STDERR;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * {@link System#nanoTime()} when the chunk was read.
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    /**
+     * The chunk's lines joined by newlines, without a trailing newline.
+     */
+    public String getText() {
+        return text;
+    }
+
+    public int getLineCount() {
+        return lineCount;
+    }
+}
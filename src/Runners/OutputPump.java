@@ -0,0 +1,221 @@
+package Runners;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains a process output stream with blocking bulk reads into a reusable buffer.
+ * Complete lines are offered to the listener as raw UTF-8 bytes, and the accepted ones are
+ * decoded together and pushed as a single batch after every read.
+ * <p>
+ * Each batch is stamped with the time of the read it came from and the next number from a sequence that the
+ * pumps of a process's stdout and stderr share. Only emitted batches take a number, so the sequence has no
+ * gaps and a consumer receiving the two streams' batches out of order can wait for the missing one.
+ */
+public class OutputPump {
+
+    public interface Listener {
+        /**
+         * Called for every complete line, excluding the line terminator.
+         * Returns true if the line should be part of the next batch.
+         */
+        boolean onLine(OutputPump pump, byte[] buffer, int start, int end);
+
+        /**
+         * Receives the accepted lines of one read.
+         */
+        void onBatch(OutputChunk chunk);
+    }
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream in;
+    private final OutputChunk.Stream stream;
+    private final AtomicLong sequence;
+    private final Listener listener;
+    private final byte[] readBuffer = new byte[READ_BUFFER_SIZE];
+
+    private byte[] partial = new byte[1024];
+    private int partialLength = 0;
+
+    private byte[] batch = new byte[READ_BUFFER_SIZE];
+    private int batchLength = 0;
+    private int batchLines = 0;
+    private long batchNanos;
+
+    private volatile long lastReadTime = System.currentTimeMillis();
+    private volatile long readBlockedSince = 0;
+
+    public OutputPump(InputStream in, Listener listener) {
+        this(in, OutputChunk.Stream.STDOUT, new AtomicLong(), listener);
+    }
+
+    /**
+     * Pumps one of a process's streams, numbering its batches from {@code sequence}.
+     */
+    public OutputPump(InputStream in, OutputChunk.Stream stream, AtomicLong sequence, Listener listener) {
+        this.in = in;
+        this.stream = stream;
+        this.sequence = sequence;
+        this.listener = listener;
+    }
+
+    public void pump() throws IOException {
+        int n;
+        while (true) {
+            readBlockedSince = System.currentTimeMillis();
+            n = in.read(readBuffer);
+            readBlockedSince = 0;
+            if (n == -1) {
+                break;
+            }
+            lastReadTime = System.currentTimeMillis();
+            synchronized (this) {
+                batchNanos = System.nanoTime();
+                split(readBuffer, n);
+                emitBatch();
+            }
+        }
+        synchronized (this) {
+            batchNanos = System.nanoTime();
+            if (partialLength > 0) {
+                acceptLine(partial, 0, partialLength);
+                partialLength = 0;
+            }
+            emitBatch();
+        }
+    }
+
+    public OutputChunk.Stream getStream() {
+        return stream;
+    }
+
+    public long millisSinceLastRead() {
+        return System.currentTimeMillis() - lastReadTime;
+    }
+
+    /**
+     * Returns how long the pump has been waiting for the stream, or 0 while it is handling what it read.
+     */
+    public long millisBlockedInRead() {
+        long since = readBlockedSince;
+        return since == 0 ? 0 : System.currentTimeMillis() - since;
+    }
+
+    /**
+     * Pushes an unterminated trailing line, such as an input prompt, without waiting for its newline.
+     * An incomplete multi-byte character at the end is held back until the rest of it arrives.
+     */
+    public synchronized void flushPartial() {
+        int complete = completeUtf8Length(partial, partialLength);
+        if (complete == 0) {
+            return;
+        }
+        batchNanos = System.nanoTime();
+        acceptLine(partial, 0, complete);
+        System.arraycopy(partial, complete, partial, 0, partialLength - complete);
+        partialLength -= complete;
+        emitBatch();
+    }
+
+    /**
+     * Adds a line of text to the current batch, keeping it in order with the lines around it.
+     * Intended to be called from {@link Listener#onLine}.
+     */
+    public void appendToBatch(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        appendBatchLine(bytes, 0, bytes.length);
+    }
+
+    private void split(byte[] buffer, int length) {
+        int lineStart = 0;
+        for (int i = 0; i < length; i++) {
+            if (buffer[i] != '\n') {
+                continue;
+            }
+            if (partialLength > 0) {
+                appendPartial(buffer, lineStart, i);
+                acceptLine(partial, 0, partialLength);
+                partialLength = 0;
+            } else {
+                acceptLine(buffer, lineStart, i);
+            }
+            lineStart = i + 1;
+        }
+        if (lineStart < length) {
+            appendPartial(buffer, lineStart, length);
+        }
+    }
+
+    private void acceptLine(byte[] buffer, int start, int end) {
+        if (listener.onLine(this, buffer, start, end)) {
+            appendBatchLine(buffer, start, end);
+        }
+    }
+
+    private void appendBatchLine(byte[] buffer, int start, int end) {
+        int needed = batchLength + (end - start) + 1;
+        if (needed > batch.length) {
+            batch = Arrays.copyOf(batch, Math.max(needed, batch.length * 2));
+        }
+        if (batchLines > 0) {
+            batch[batchLength++] = '\n';
+        }
+        System.arraycopy(buffer, start, batch, batchLength, end - start);
+        batchLength += end - start;
+        batchLines++;
+    }
+
+    private void appendPartial(byte[] buffer, int start, int end) {
+        int needed = partialLength + (end - start);
+        if (needed > partial.length) {
+            partial = Arrays.copyOf(partial, Math.max(needed, partial.length * 2));
+        }
+        System.arraycopy(buffer, start, partial, partialLength, end - start);
+        partialLength = needed;
+    }
+
+    private void emitBatch() {
+        if (batchLines == 0) {
+            return;
+        }
+        String text = new String(batch, 0, batchLength, StandardCharsets.UTF_8);
+        int lines = batchLines;
+        batchLength = 0;
+        batchLines = 0;
+        if (batch.length > READ_BUFFER_SIZE * 4) {
+            batch = new byte[READ_BUFFER_SIZE];
+        }
+        listener.onBatch(new OutputChunk(stream, sequence.getAndIncrement(), batchNanos, text, lines));
+    }
+
+    /**
+     * Returns the length of the prefix that does not end inside a multi-byte UTF-8 sequence.
+     */
+    static int completeUtf8Length(byte[] bytes, int length) {
+        int i = length - 1;
+        int continuation = 0;
+        while (i >= 0 && continuation < 3 && (bytes[i] & 0xC0) == 0x80) {
+            i--;
+            continuation++;
+        }
+        if (i < 0) {
+            return length;
+        }
+        int lead = bytes[i] & 0xFF;
+        int expected;
+        if (lead >= 0xF0) {
+            expected = 3;
+        } else if (lead >= 0xE0) {
+            expected = 2;
+        } else if (lead >= 0xC0) {
+            expected = 1;
+        } else {
+            return length;
+        }
+        return continuation >= expected ? length : i;
+    }
+}
@@ -0,0 +1,144 @@
+package Runners;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Samples CPU time and resident memory of a script's process tree from /proc on Linux.
+ * <p>
+ * The last reading of every process seen is kept, so CPU time of descendants that exit between samples
+ * is still counted up to their last sample. Peak memory is the larger of the highest total RSS of the
+ * tree at any sample and the highest single-process high-water mark.
+ */
+public class ProcessMeter {
+    public static final long SAMPLE_INTERVAL_MS = 50;
+
+    private static final Path PROC = Paths.get("/proc");
+    /** /proc reports CPU times in USER_HZ ticks, which Linux fixes at 100 per second. */
+    private static final long MILLIS_PER_TICK = 10;
+
+    private final Process process;
+    private final Map<Long, long[]> cpuTicks = new HashMap<>();
+    private final Map<Long, long[]> baselineTicks = new HashMap<>();
+    private long peakTreeRssKb = 0;
+    private long peakProcessHwmKb = 0;
+    private boolean memorySampled = false;
+    private long lastSampleNanos = 0;
+
+    private ProcessMeter(Process process) {
+        this.process = process;
+    }
+
+    /**
+     * Returns a meter for the process, or null where /proc is not available. The first sample is taken at
+     * once, so even a run that exits right away is measured.
+     */
+    public static ProcessMeter forProcess(Process process) {
+        if (!Files.isRegularFile(PROC.resolve(Long.toString(process.pid())).resolve("stat"))) {
+            return null;
+        }
+        ProcessMeter meter = new ProcessMeter(process);
+        meter.sample();
+        return meter;
+    }
+
+    /**
+     * Takes a sample unless one was taken within the last {@link #SAMPLE_INTERVAL_MS}.
+     */
+    public synchronized void sample() {
+        long now = System.nanoTime();
+        if (lastSampleNanos != 0 && now - lastSampleNanos < SAMPLE_INTERVAL_MS * 1_000_000) {
+            return;
+        }
+        lastSampleNanos = now;
+
+        long treeRssKb = sampleProcess(process.pid());
+        Iterator<ProcessHandle> descendants = process.descendants().iterator();
+        while (descendants.hasNext()) {
+            treeRssKb += sampleProcess(descendants.next().pid());
+        }
+        peakTreeRssKb = Math.max(peakTreeRssKb, treeRssKb);
+    }
+
+    /**
+     * Takes the current CPU times of the tree as zero, for processes that were started before the run,
+     * such as a warm host.
+     */
+    public synchronized void excludeEarlierCpu() {
+        lastSampleNanos = 0;
+        sample();
+        baselineTicks.putAll(cpuTicks);
+    }
+
+    /**
+     * Returns the user CPU time of the tree, or -1 if no sample could be read.
+     */
+    public synchronized long getUserCpuMillis() {
+        return cpuMillis(0);
+    }
+
+    public synchronized long getSystemCpuMillis() {
+        return cpuMillis(1);
+    }
+
+    /**
+     * Returns the peak memory of the tree, or -1 if its memory could never be read.
+     */
+    public synchronized long getPeakRssBytes() {
+        if (!memorySampled) {
+            return -1;
+        }
+        return Math.max(peakTreeRssKb, peakProcessHwmKb) * 1024;
+    }
+
+    private long cpuMillis(int field) {
+        if (cpuTicks.isEmpty()) {
+            return -1;
+        }
+        long ticks = 0;
+        for (Map.Entry<Long, long[]> entry : cpuTicks.entrySet()) {
+            long[] baseline = baselineTicks.get(entry.getKey());
+            ticks += entry.getValue()[field] - (baseline == null ? 0 : baseline[field]);
+        }
+        return ticks * MILLIS_PER_TICK;
+    }
+
+    /**
+     * Records CPU times and the memory high-water mark of one process and returns its current RSS in kB.
+     */
+    private long sampleProcess(long pid) {
+        Path processDir = PROC.resolve(Long.toString(pid));
+        try {
+            String stat = new String(Files.readAllBytes(processDir.resolve("stat")));
+            String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+            // Fields after the command name start at field 3 (state); utime and stime are fields 14 and 15.
+            cpuTicks.put(pid, new long[]{Long.parseLong(fields[11]), Long.parseLong(fields[12])});
+
+            long rssKb = 0;
+            for (String line : Files.readAllLines(processDir.resolve("status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    rssKb = parseKb(line);
+                    memorySampled = true;
+                } else if (line.startsWith("VmHWM:")) {
+                    peakProcessHwmKb = Math.max(peakProcessHwmKb, parseKb(line));
+                    memorySampled = true;
+                }
+            }
+            return rssKb;
+        } catch (IOException | RuntimeException e) {
+            // The process exited between listing and reading; its last sample still counts.
+            return 0;
+        }
+    }
+
+    private static long parseKb(String statusLine) {
+        String value = statusLine.substring(statusLine.indexOf(':') + 1).trim();
+        int space = value.indexOf(' ');
+        return Long.parseLong(space < 0 ? value : value.substring(0, space));
+    }
+}
@@ -0,0 +1,33 @@
+package Runners;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Starts background compiler processes at reduced CPU priority so they do not compete with the editor
+ * or with a script the user is running.
+ */
+class ProcessPriority {
+    private static final String NICE = "/usr/bin/nice";
+    private static final boolean NICE_AVAILABLE = Files.isExecutable(Paths.get(NICE));
+
+    private ProcessPriority() {
+    }
+
+    /**
+     * Returns the command prefixed with {@code nice} where available, or unchanged elsewhere.
+     */
+    static List<String> lowered(List<String> command) {
+        if (!NICE_AVAILABLE) {
+            return command;
+        }
+        List<String> lowered = new ArrayList<>(command.size() + 3);
+        lowered.add(NICE);
+        lowered.add("-n");
+        lowered.add("10");
+        lowered.addAll(command);
+        return lowered;
+    }
+}
@@ -0,0 +1,164 @@
+package Runners;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A process and every descendant it has been seen with, so the whole tree can be terminated together.
+ * <p>
+ * Descendants are reparented once their parent dies and can no longer be found from it, so the tree
+ * remembers every descendant seen by {@link #refresh()} as well as those found when terminating.
+ * {@link #terminate()} asks every process to exit and kills whatever is still alive after a grace
+ * period, without blocking the caller.
+ */
+final class ProcessTree {
+    /** How long processes get to exit after a polite request before they are killed. */
+    static final long GRACE_MS = 500;
+    /** How long output may keep flowing after the root exits before whatever holds the pipe is terminated. */
+    private static final long PIPE_GRACE_MS = 200;
+    private static final long REFRESH_INTERVAL_MS = 250;
+    private static final long EXIT_POLL_MS = 10;
+
+    private final ProcessHandle root;
+    private final Set<ProcessHandle> seen = ConcurrentHashMap.newKeySet();
+    private volatile long lastRefreshNanos = 0;
+
+    private ProcessTree(ProcessHandle root) {
+        this.root = root;
+    }
+
+    static ProcessTree of(Process process) {
+        return new ProcessTree(process.toHandle());
+    }
+
+    /**
+     * Records the current descendants, unless that was done within the last {@link #REFRESH_INTERVAL_MS}.
+     */
+    void refresh() {
+        long now = System.nanoTime();
+        if (lastRefreshNanos != 0 && now - lastRefreshNanos < REFRESH_INTERVAL_MS * 1_000_000) {
+            return;
+        }
+        lastRefreshNanos = now;
+        root.descendants().forEach(seen::add);
+    }
+
+    /**
+     * Terminates the root and every live descendant. The returned future completes once all of them have
+     * exited.
+     */
+    CompletableFuture<Void> terminate() {
+        List<ProcessHandle> tree = new ArrayList<>();
+        collect(root, tree);
+        for (ProcessHandle process : seen) {
+            collect(process, tree);
+        }
+
+        for (ProcessHandle process : tree) {
+            if (!process.supportsNormalTermination() || !process.destroy()) {
+                process.destroyForcibly();
+            }
+        }
+        CompletableFuture<Void> exited = new CompletableFuture<>();
+        awaitExit(tree, System.nanoTime() + GRACE_MS * 1_000_000, exited);
+        return exited;
+    }
+
+    /**
+     * Polls until every process in {@code tree} has exited, killing survivors once {@code killAtNanos} has
+     * passed. Polling is used rather than {@link ProcessHandle#onExit()}, which only notices that a process
+     * that is not our child has exited after a growing back-off of up to several hundred milliseconds.
+     */
+    private static void awaitExit(List<ProcessHandle> tree, long killAtNanos, CompletableFuture<Void> exited) {
+        tree.removeIf(process -> !process.isAlive());
+        if (tree.isEmpty()) {
+            exited.complete(null);
+            return;
+        }
+        long nextKill = killAtNanos;
+        if (killAtNanos != 0 && System.nanoTime() - killAtNanos >= 0) {
+            List<ProcessHandle> survivors = new ArrayList<>();
+            for (ProcessHandle process : tree) {
+                collect(process, survivors);
+            }
+            for (ProcessHandle process : survivors) {
+                process.destroyForcibly();
+            }
+            tree.clear();
+            tree.addAll(survivors);
+            nextKill = 0;
+        }
+        long killAt = nextKill;
+        CompletableFuture.delayedExecutor(EXIT_POLL_MS, TimeUnit.MILLISECONDS)
+                .execute(() -> awaitExit(tree, killAt, exited));
+    }
+
+    /**
+     * Terminates the tree and waits until it has exited, or for a little longer than the grace period.
+     * Returns early if interrupted, with the interrupt flag set.
+     */
+    void terminateAndWait() {
+        try {
+            terminate().get(GRACE_MS * 4, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            System.err.println("Processes still alive after termination: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Waits for the readers of the tree's output streams to finish after the root has exited. A reader that is
+     * still delivering what it read is waited for however long that takes, so nothing the tree wrote is lost.
+     * Only when a pump has been waiting on an open pipe for a short while, or once {@code stopped} reports a
+     * stop, is the tree terminated so the pipes close; a reader still waiting on its pipe after the grace
+     * period is then cancelled, since whatever holds the pipe was not found.
+     */
+    void awaitOutputClosed(BooleanSupplier stopped, List<OutputPump> pumps, List<Future<?>> readers)
+            throws InterruptedException, ExecutionException {
+        long terminatedAt = 0;
+        for (int i = 0; i < readers.size(); i++) {
+            Future<?> reader = readers.get(i);
+            OutputPump pump = pumps.get(i);
+            while (true) {
+                try {
+                    reader.get(PIPE_GRACE_MS, TimeUnit.MILLISECONDS);
+                    break;
+                } catch (TimeoutException e) {
+                    boolean pipeHeld = pump.millisBlockedInRead() >= PIPE_GRACE_MS;
+                    if (!pipeHeld && !stopped.getAsBoolean()) {
+                        continue;
+                    }
+                    if (terminatedAt == 0) {
+                        terminate();
+                        terminatedAt = System.nanoTime();
+                    } else if (pipeHeld
+                            && System.nanoTime() - terminatedAt >= (GRACE_MS + PIPE_GRACE_MS) * 1_000_000) {
+                        reader.cancel(true);
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a live process and its live descendants, deepest first, so children are signalled before their
+     * parents can respawn them.
+     */
+    private static void collect(ProcessHandle process, List<ProcessHandle> into) {
+        if (!process.isAlive() || into.contains(process)) {
+            return;
+        }
+        process.children().forEach(child -> collect(child, into));
+        into.add(process);
+    }
+}
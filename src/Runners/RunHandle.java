@@ -0,0 +1,96 @@
+package Runners;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * A single script run submitted to a {@link RunScheduler}, with its own runner, input, stop and exit code.
+ */
+public class RunHandle {
+    private final String language;
+    private final ScriptRunner runner;
+    private final CompletableFuture<Integer> exitCode = new CompletableFuture<>();
+
+    private volatile boolean started = false;
+    private volatile boolean stopped = false;
+    private Future<?> task;
+
+    RunHandle(String language, ScriptRunner runner) {
+        this.language = language;
+        this.runner = runner;
+    }
+
+    void setTask(Future<?> task) {
+        this.task = task;
+    }
+
+    void markStarted() {
+        started = true;
+    }
+
+    void complete(int code) {
+        exitCode.complete(code);
+    }
+
+    public String getLanguage() {
+        return language;
+    }
+
+    public ScriptRunner getRunner() {
+        return runner;
+    }
+
+    public boolean sendInput(String input) {
+        return runner.sendInput(input);
+    }
+
+    /**
+     * Stops the run. A run still waiting for a free worker is removed from the queue and finishes with -1.
+     */
+    public void stop() {
+        stopped = true;
+        if (!started && task != null && task.cancel(false)) {
+            exitCode.complete(-1);
+            return;
+        }
+        runner.stopScript();
+    }
+
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * True from submission until the run finishes, including while it is queued.
+     */
+    public boolean isActive() {
+        return !exitCode.isDone();
+    }
+
+    public boolean isRunning() {
+        return started && runner.isRunning();
+    }
+
+    public CompletableFuture<Integer> getExitCode() {
+        return exitCode;
+    }
+
+    public int awaitExitCode() throws InterruptedException {
+        try {
+            return exitCode.get();
+        } catch (ExecutionException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Frees the runner's retained output. Call once the run's output is no longer needed.
+     */
+    public void release() {
+        if (isActive()) {
+            stop();
+        }
+        runner.shutdown();
+    }
+}
@@ -0,0 +1,145 @@
+package Runners;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs scripts of any registered language on a bounded pool sized to the available cores.
+ * Every run gets a fresh runner, so Swift and Kotlin runs can proceed side by side.
+ */
+public class RunScheduler {
+    private final Map<String, Function<ExecutorService, ScriptRunner>> runnerFactories = new ConcurrentHashMap<>();
+    private final ExecutorService runPool;
+    private final ExecutorService outputPool;
+    private final ExecutorService buildPool;
+    private final ExecutorService checkPool;
+
+    public RunScheduler() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public RunScheduler(int maxConcurrentRuns) {
+        runPool = Executors.newFixedThreadPool(Math.max(1, maxConcurrentRuns), namedDaemonThreads("script-run"));
+        outputPool = Executors.newCachedThreadPool(namedDaemonThreads("script-output"));
+        buildPool = Executors.newSingleThreadExecutor(namedDaemonThreads("script-build"));
+        checkPool = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "script-check");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    /**
+     * Registers how to create a runner for a language. The factory receives the executor runners should read output on.
+     */
+    public void register(String language, Function<ExecutorService, ScriptRunner> factory) {
+        runnerFactories.put(language, factory);
+    }
+
+    public boolean supports(String language) {
+        return runnerFactories.containsKey(language);
+    }
+
+    /**
+     * Queues a run. Errors and input requests are delivered on the run's worker thread. Output chunks arrive
+     * on the threads reading the script's stdout and stderr, so chunks of the two streams may arrive out of
+     * sequence.
+     */
+    public RunHandle submit(String language, String script,
+                            Consumer<OutputChunk> outputConsumer,
+                            Consumer<String> errorConsumer,
+                            Runnable inputRequiredCallback) {
+        Function<ExecutorService, ScriptRunner> factory = runnerFactories.get(language);
+        if (factory == null) {
+            throw new IllegalArgumentException("No runner registered for " + language);
+        }
+
+        ScriptRunner runner = factory.apply(outputPool);
+        runner.setInputRequiredCallback(inputRequiredCallback);
+        RunHandle handle = new RunHandle(language, runner);
+
+        handle.setTask(runPool.submit(() -> {
+            handle.markStarted();
+            int exitCode = -1;
+            try {
+                if (!handle.isStopped()) {
+                    exitCode = runner.runScript(script, outputConsumer, errorConsumer);
+                }
+            } catch (RuntimeException e) {
+                errorConsumer.accept("Run failed: " + e.getMessage());
+            } finally {
+                handle.complete(exitCode);
+            }
+        }));
+        return handle;
+    }
+
+    /**
+     * Queues a background build of a script on a single thread separate from the run pool, so speculative
+     * builds never hold up runs. Cancelling the returned future with interruption abandons the build.
+     */
+    public Future<Boolean> precompile(String language, String script) {
+        Function<ExecutorService, ScriptRunner> factory = runnerFactories.get(language);
+        if (factory == null) {
+            throw new IllegalArgumentException("No runner registered for " + language);
+        }
+        return buildPool.submit(() -> {
+            ScriptRunner runner = factory.apply(outputPool);
+            try {
+                return runner.precompile(script);
+            } finally {
+                runner.shutdown();
+            }
+        });
+    }
+
+    /**
+     * Queues a type check of a script on a low-priority thread. The compiler's messages are delivered on
+     * that thread unless the returned future was cancelled first, which also abandons the check.
+     */
+    public Future<?> typecheck(String language, String script, Consumer<List<String>> messagesConsumer) {
+        Function<ExecutorService, ScriptRunner> factory = runnerFactories.get(language);
+        if (factory == null) {
+            throw new IllegalArgumentException("No runner registered for " + language);
+        }
+        return checkPool.submit(() -> {
+            ScriptRunner runner = factory.apply(outputPool);
+            try {
+                List<String> messages = new ArrayList<>();
+                runner.typecheck(script, messages);
+                if (!Thread.currentThread().isInterrupted()) {
+                    messagesConsumer.accept(messages);
+                }
+            } catch (IOException e) {
+                System.err.println("Type check failed: " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                runner.shutdown();
+            }
+        });
+    }
+
+    public void shutdown() {
+        runPool.shutdownNow();
+        outputPool.shutdownNow();
+        buildPool.shutdownNow();
+        checkPool.shutdownNow();
+    }
+
+    private static ThreadFactory namedDaemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,119 @@
+package Runners;
+
+/**
+ * Timings, resource use and output volume of a single script run.
+ * Values that could not be measured on this platform are -1.
+ */
+public class RunStats {
+    public static final String CSV_HEADER = "exit_code,cache_hit,compile_ms,first_output_ms,run_ms,"
+            + "user_cpu_ms,system_cpu_ms,peak_rss_bytes,output_bytes,output_lines,dropped_lines";
+
+    private final int exitCode;
+    private final boolean cacheHit;
+    private final long compileMillis;
+    private final long firstOutputMillis;
+    private final long runMillis;
+    private final long userCpuMillis;
+    private final long systemCpuMillis;
+    private final long peakRssBytes;
+    private final long outputBytes;
+    private final long outputLines;
+    private final long droppedLines;
+
+    public RunStats(int exitCode, boolean cacheHit, long compileMillis, long firstOutputMillis, long runMillis,
+                    long userCpuMillis, long systemCpuMillis, long peakRssBytes,
+                    long outputBytes, long outputLines, long droppedLines) {
+        this.exitCode = exitCode;
+        this.cacheHit = cacheHit;
+        this.compileMillis = compileMillis;
+        this.firstOutputMillis = firstOutputMillis;
+        this.runMillis = runMillis;
+        this.userCpuMillis = userCpuMillis;
+        this.systemCpuMillis = systemCpuMillis;
+        this.peakRssBytes = peakRssBytes;
+        this.outputBytes = outputBytes;
+        this.outputLines = outputLines;
+        this.droppedLines = droppedLines;
+    }
+
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    /**
+     * True if the compiled artifact came from the {@link ArtifactCache} and no compiler was run.
+     */
+    public boolean isCacheHit() {
+        return cacheHit;
+    }
+
+    public long getCompileMillis() {
+        return compileMillis;
+    }
+
+    /**
+     * Time from starting the script process until its first output arrived, or -1 if it printed nothing.
+     */
+    public long getFirstOutputMillis() {
+        return firstOutputMillis;
+    }
+
+    /**
+     * Wall time from starting the script process until it exited, or 0 if it never started.
+     */
+    public long getRunMillis() {
+        return runMillis;
+    }
+
+    /**
+     * CPU time spent in user mode by the script and its descendants, sampled from /proc.
+     */
+    public long getUserCpuMillis() {
+        return userCpuMillis;
+    }
+
+    public long getSystemCpuMillis() {
+        return systemCpuMillis;
+    }
+
+    /**
+     * Highest resident set size observed for the script's process tree.
+     */
+    public long getPeakRssBytes() {
+        return peakRssBytes;
+    }
+
+    public long getOutputBytes() {
+        return outputBytes;
+    }
+
+    public long getOutputLines() {
+        return outputLines;
+    }
+
+    /**
+     * Lines kept in the output history but not shown, because the display limit was reached.
+     */
+    public long getDroppedLines() {
+        return droppedLines;
+    }
+
+    /**
+     * Returns the values in {@link #CSV_HEADER} order.
+     */
+    public String toCsv() {
+        return exitCode + "," + cacheHit + "," + compileMillis + "," + firstOutputMillis + "," + runMillis + ","
+                + userCpuMillis + "," + systemCpuMillis + "," + peakRssBytes + ","
+                + outputBytes + "," + outputLines + "," + droppedLines;
+    }
+
+    /**
+     * Quotes a value for a CSV field if it contains a separator, quote or line break.
+     */
+    public static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+}
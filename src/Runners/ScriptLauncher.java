@@ -0,0 +1,38 @@
+package Runners;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+/**
+ * Entry point used to run a Kotlin script that has been compiled to a jar.
+ * Compiled scripts either expose a static main or take their arguments through the constructor.
+ */
+public final class ScriptLauncher {
+
+    private ScriptLauncher() {
+    }
+
+    public static void main(String[] args) throws Throwable {
+        if (args.length == 0) {
+            System.err.println("Usage: ScriptLauncher <script class> [args...]");
+            System.exit(2);
+        }
+        launch(Class.forName(args[0]), Arrays.copyOfRange(args, 1, args.length));
+    }
+
+    static void launch(Class<?> scriptClass, String[] scriptArgs) throws Throwable {
+        try {
+            Method main = scriptClass.getMethod("main", String[].class);
+            main.invoke(null, (Object) scriptArgs);
+        } catch (NoSuchMethodException e) {
+            try {
+                scriptClass.getConstructor(String[].class).newInstance((Object) scriptArgs);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -1,17 +1,59 @@
 package Runners;
 
+import java.io.IOException;
+import java.util.List;
 import java.util.function.Consumer;
 
 public interface ScriptRunner {
-    int runScript(String script, Consumer<String> outputConsumer, Consumer<String> errorConsumer);
+    /**
+     * Runs the script and returns its exit code. What the script writes to stdout and stderr goes to
+     * {@code outputConsumer} as separate, sequence-numbered chunks; compiler and runner messages go to
+     * {@code errorConsumer}.
+     */
+    int runScript(String script, Consumer<OutputChunk> outputConsumer, Consumer<String> errorConsumer);
+
+    /**
+     * Builds the script into the artifact cache without running it, so a later run of the same text can
+     * start at once. Returns true if a built artifact is ready, and false without building if the script
+     * would not be run from a build anyway. Interrupting the caller abandons the build.
+     */
+    boolean precompile(String script);
+
+    /**
+     * Type-checks the script without producing a runnable artifact, adding the compiler's messages to
+     * {@code messages}. Returns the compiler's exit code. Interrupting the caller abandons the check.
+     */
+    int typecheck(String script, List<String> messages) throws IOException, InterruptedException;
 
     boolean sendInput(String input);
 
+    /**
+     * Sets a callback run on the runner's own thread as soon as the script seems to wait for input.
+     */
     void setInputRequiredCallback(Runnable inputRequiredCallback);
 
     void stopScript();
 
     boolean isRunning();
 
+    /**
+     * Sets how many stdout lines are passed to the output consumer before further stdout is thinned out.
+     * Stderr is always passed in full. By default, and with {@link Integer#MAX_VALUE}, every line is passed.
+     */
     void setMaxOutputLines(int maxOutputLines);
+
+    /**
+     * Timings, resource use and output volume of the latest finished run, or null before the first run.
+     */
+    RunStats getLastRunStats();
+
+    /**
+     * Complete output of the latest run, including lines beyond the display limit, or null before the first run.
+     */
+    LineRingBuffer getOutputHistory();
+
+    /**
+     * Releases the output history and any threads the runner owns.
+     */
+    void shutdown();
 }
\ No newline at end of file
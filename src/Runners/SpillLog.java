@@ -0,0 +1,129 @@
+package Runners;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only log of output lines backed by memory-mapped files, so evicted lines cost no heap.
+ * Line bytes go to a data file and the start offset of every line goes to a separate index file,
+ * which keeps random access by line number without an in-memory index.
+ */
+public class SpillLog implements AutoCloseable {
+    private static final int SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    private final Path dataPath;
+    private final Path indexPath;
+    private final FileChannel data;
+    private final FileChannel index;
+
+    private MappedByteBuffer dataSegment;
+    private long dataSegmentStart = 0;
+    private MappedByteBuffer indexSegment;
+    private long indexSegmentStart = 0;
+
+    private long dataLength = 0;
+    private long lineCount = 0;
+
+    public SpillLog() throws IOException {
+        dataPath = Files.createTempFile("output_spill_", ".log");
+        indexPath = Files.createTempFile("output_spill_", ".idx");
+        dataPath.toFile().deleteOnExit();
+        indexPath.toFile().deleteOnExit();
+        data = FileChannel.open(dataPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        index = FileChannel.open(indexPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        dataSegment = data.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_SIZE);
+        indexSegment = index.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_SIZE);
+    }
+
+    public synchronized void append(byte[] buffer, int start, int end) throws IOException {
+        if (!indexSegment.hasRemaining()) {
+            indexSegmentStart += SEGMENT_SIZE;
+            indexSegment = index.map(FileChannel.MapMode.READ_WRITE, indexSegmentStart, SEGMENT_SIZE);
+        }
+        indexSegment.putLong(dataLength);
+
+        int position = start;
+        while (position < end) {
+            if (!dataSegment.hasRemaining()) {
+                dataSegmentStart += SEGMENT_SIZE;
+                dataSegment = data.map(FileChannel.MapMode.READ_WRITE, dataSegmentStart, SEGMENT_SIZE);
+            }
+            int chunk = Math.min(end - position, dataSegment.remaining());
+            dataSegment.put(buffer, position, chunk);
+            position += chunk;
+        }
+        dataLength += end - start;
+        lineCount++;
+    }
+
+    public synchronized long getLineCount() {
+        return lineCount;
+    }
+
+    public synchronized byte[] readLine(long line) throws IOException {
+        if (line < 0 || line >= lineCount) {
+            throw new IndexOutOfBoundsException("Line " + line + " of " + lineCount);
+        }
+        long start = lineStart(line);
+        long end = line + 1 < lineCount ? lineStart(line + 1) : dataLength;
+        ByteBuffer bytes = ByteBuffer.allocate((int) (end - start));
+        while (bytes.hasRemaining()) {
+            if (data.read(bytes, start + bytes.position()) < 0) {
+                break;
+            }
+        }
+        return bytes.array();
+    }
+
+    /**
+     * Writes every spilled line, each followed by a newline.
+     */
+    public synchronized void writeTo(OutputStream out) throws IOException {
+        byte[] chunk = new byte[64 * 1024];
+        for (long line = 0; line < lineCount; line++) {
+            long start = lineStart(line);
+            long end = line + 1 < lineCount ? lineStart(line + 1) : dataLength;
+            while (start < end) {
+                int length = (int) Math.min(chunk.length, end - start);
+                ByteBuffer bytes = ByteBuffer.wrap(chunk, 0, length);
+                int read = data.read(bytes, start);
+                if (read < 0) {
+                    break;
+                }
+                out.write(chunk, 0, read);
+                start += read;
+            }
+            out.write('\n');
+        }
+    }
+
+    private long lineStart(long line) throws IOException {
+        long position = line * Long.BYTES;
+        if (position >= indexSegmentStart) {
+            return indexSegment.getLong((int) (position - indexSegmentStart));
+        }
+        ByteBuffer offset = ByteBuffer.allocate(Long.BYTES);
+        while (offset.hasRemaining()) {
+            if (index.read(offset, position + offset.position()) < 0) {
+                break;
+            }
+        }
+        return offset.getLong(0);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        dataSegment = null;
+        indexSegment = null;
+        data.close();
+        index.close();
+        Files.deleteIfExists(dataPath);
+        Files.deleteIfExists(indexPath);
+    }
+}
@@ -1,16 +1,31 @@
 package Runners;
 
-import javax.swing.*;
 import java.io.*;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
 public class SwiftRunner implements ScriptRunner {
 
+    private static final List<String> COMPILE_FLAGS = List.of();
+
+    static final String STRATEGY_INTERPRET = "interpret";
+    static final String STRATEGY_COMPILE = "compile";
+    private static final int INTERPRETER_TRIAL_LIMIT = 8 * 1024;
+    /** Runs of a size bucket after which the slower strategy is measured again. */
+    private static final int RESAMPLE_RUNS = 10;
+    private static ExecutionTimings sharedTimings;
+
     private Process currentProcess;
-    private ExecutorService executorService;
+    /** The compiler or script process tree of the current run, whichever is running. */
+    private volatile ProcessTree activeTree;
+    private volatile boolean stopRequested = false;
+    private final ExecutorService executorService;
+    private final boolean ownsExecutor;
     private volatile boolean running = false;
     private volatile boolean outputLimitReached = false;
     private volatile boolean waitingForInput = false;
@@ -18,16 +33,46 @@ public class SwiftRunner implements ScriptRunner {
     private OutputStreamWriter processInput;
     private Runnable inputRequiredCallback;
 
-    private int maxOutputLines = 1000;
+    private static final int MIN_BUFFER_BYTES = 64 * 1024;
+    /** Lines of history kept in memory; older ones spill to disk, so this only bounds the heap. */
+    private static final int MAX_HISTORY_LINES = 20000;
+    private static final long INACTIVITY_TICK_MS = 50;
+    private static final long INACTIVITY_THRESHOLD_MS = 500;
 
-    private Queue<String> outputBuffer = new LinkedList<>();
+    private int maxOutputLines = Integer.MAX_VALUE;
+
+    private LineRingBuffer outputBuffer;
+    private volatile RunStats lastRunStats;
     private long totalLines = 0;
+    private long stdoutLines = 0;
     private long droppedLines = 0;
+    private long outputBytes = 0;
+    private long firstOutputNanos = 0;
 
     private boolean containsReadLine = false;
 
+    private final ArtifactCache artifactCache = ArtifactCache.shared();
+    private final ExecutionTimings timings = sharedTimings();
+    private volatile boolean inputRequested = false;
+
     public SwiftRunner() {
         executorService = Executors.newFixedThreadPool(2);
+        ownsExecutor = true;
+    }
+
+    /**
+     * Creates a runner that reads process output on the given executor, which the caller keeps ownership of.
+     */
+    public SwiftRunner(ExecutorService executorService) {
+        this.executorService = executorService;
+        ownsExecutor = false;
+    }
+
+    private static synchronized ExecutionTimings sharedTimings() {
+        if (sharedTimings == null) {
+            sharedTimings = new ExecutionTimings(ArtifactCache.shared().getRoot().resolve("meta").resolve("swift-timings.properties"));
+        }
+        return sharedTimings;
     }
 
     @Override
@@ -35,6 +80,53 @@ public class SwiftRunner implements ScriptRunner {
         this.inputRequiredCallback = callback;
     }
 
+    @Override
+    public boolean precompile(String scriptContent) {
+        String artifactKey = ArtifactCache.key(
+                scriptContent,
+                ArtifactCache.compilerVersion("swiftc", "--version"),
+                COMPILE_FLAGS
+        );
+        if (artifactCache.lookup(artifactKey) != null) {
+            return true;
+        }
+        if (STRATEGY_INTERPRET.equals(chooseStrategy(scriptContent.length()))) {
+            return false;
+        }
+        if (!artifactCache.beginBuild(artifactKey)) {
+            return false;
+        }
+        try {
+            return compile(scriptContent, artifactKey, message -> { }, new int[1], true) != null;
+        } catch (IOException e) {
+            System.err.println("Speculative Swift build failed: " + e.getMessage());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            artifactCache.endBuild(artifactKey);
+        }
+    }
+
+    @Override
+    public int typecheck(String scriptContent, List<String> messages) throws IOException, InterruptedException {
+        Path checkDir = Files.createTempDirectory("swift_check_");
+        try {
+            Path source = checkDir.resolve("main.swift");
+            Files.writeString(source, scriptContent);
+            Path log = checkDir.resolve("typecheck.log");
+            List<String> command = List.of("swiftc", "-typecheck", source.toString());
+            int exitCode = runCompiler(ProcessPriority.lowered(command), log);
+            messages.addAll(Files.readAllLines(log));
+            return exitCode;
+        } finally {
+            Files.deleteIfExists(checkDir.resolve("main.swift"));
+            Files.deleteIfExists(checkDir.resolve("typecheck.log"));
+            Files.deleteIfExists(checkDir);
+        }
+    }
+
     @Override
     public boolean sendInput(String input) {
         if (!running || currentProcess == null || !currentProcess.isAlive() || processInput == null) {
@@ -53,7 +145,7 @@ public class SwiftRunner implements ScriptRunner {
     }
 
     @Override
-    public int runScript(String scriptContent, Consumer<String> outputConsumer, Consumer<String> errorConsumer) {
+    public int runScript(String scriptContent, Consumer<OutputChunk> outputConsumer, Consumer<String> errorConsumer) {
         containsReadLine = scriptContent.contains("readLine()");
         if (running) {
             errorConsumer.accept("A script is already running");
@@ -61,178 +153,141 @@ public class SwiftRunner implements ScriptRunner {
         }
 
         running = true;
+        stopRequested = false;
         waitingForInput = false;
         outputLimitReached = false;
         totalLines = 0;
+        stdoutLines = 0;
         droppedLines = 0;
-        outputBuffer.clear();
+        outputBytes = 0;
+        firstOutputNanos = 0;
+        closeOutputBuffer();
+        int historyLines = Math.min(maxOutputLines, MAX_HISTORY_LINES);
+        outputBuffer = new LineRingBuffer(historyLines, Math.max(MIN_BUFFER_BYTES, historyLines * 128));
+        final LineRingBuffer history = outputBuffer;
 
         final int[] exitCode = {-1};
+        boolean cacheHit = false;
+        long compileNanos = 0;
+        long runStartNanos = 0;
+        long runEndNanos = 0;
+        ProcessMeter meter = null;
 
         File tempFile = null;
-        File compiledFile = null;
+        String strategy = STRATEGY_COMPILE;
+        inputRequested = false;
         try {
-            tempFile = File.createTempFile("swift_script_", ".swift");
-            tempFile.deleteOnExit();
-            try (FileWriter writer = new FileWriter(tempFile)) {
-                writer.write(scriptContent);
+            String artifactKey = ArtifactCache.key(
+                    scriptContent,
+                    ArtifactCache.compilerVersion("swiftc", "--version"),
+                    COMPILE_FLAGS
+            );
+            Path compiledPath = artifactCache.lookup(artifactKey);
+            if (compiledPath == null) {
+                long waitStart = System.nanoTime();
+                compiledPath = artifactCache.awaitBuild(artifactKey, () -> stopRequested);
+                compileNanos = System.nanoTime() - waitStart;
+            }
+            if (stopRequested) {
+                return -1;
+            }
+            cacheHit = compiledPath != null;
+            if (!cacheHit) {
+                strategy = chooseStrategy(scriptContent.length());
             }
 
-            compiledFile = File.createTempFile("swift_compiled_", "");
-            compiledFile.delete();
-            String compiledPath = compiledFile.getAbsolutePath();
-
-            ProcessBuilder compileBuilder = new ProcessBuilder(
-                    "swiftc",
-                    "-o", compiledPath,
-                    tempFile.getAbsolutePath()
-            );
-            Process compileProcess = compileBuilder.start();
-            int compileExit = compileProcess.waitFor();
-            if (compileExit != 0) {
-                try (BufferedReader err = new BufferedReader(new InputStreamReader(compileProcess.getErrorStream()))) {
-                    String line;
-                    while ((line = err.readLine()) != null) {
-                        errorConsumer.accept(line);
+            ProcessBuilder runBuilder;
+            if (STRATEGY_INTERPRET.equals(strategy)) {
+                tempFile = File.createTempFile("swift_script_", ".swift");
+                tempFile.deleteOnExit();
+                try (FileWriter writer = new FileWriter(tempFile)) {
+                    writer.write(scriptContent);
+                }
+                runBuilder = new ProcessBuilder("swift", tempFile.getAbsolutePath());
+            } else {
+                if (compiledPath == null) {
+                    long compileStart = System.nanoTime();
+                    int[] compileExit = {0};
+                    compiledPath = compile(scriptContent, artifactKey,
+                            message -> {
+                                if (!stopRequested) {
+                                    errorConsumer.accept(message);
+                                }
+                            }, compileExit, false);
+                    compileNanos += System.nanoTime() - compileStart;
+                    if (stopRequested) {
+                        return -1;
+                    }
+                    if (compiledPath == null) {
+                        running = false;
+                        exitCode[0] = compileExit[0];
+                        return compileExit[0];
                     }
                 }
-                running = false;
-                return compileExit;
+                runBuilder = new ProcessBuilder(
+                        compiledPath.toString(),
+                        "-Xfrontend", "-disable-output-buffering"
+                );
             }
-
-            ProcessBuilder runBuilder = new ProcessBuilder(
-                    compiledPath,
-                    "-Xfrontend", "-disable-output-buffering"
-            );
-            runBuilder.redirectErrorStream(true);
+            runStartNanos = System.nanoTime();
             currentProcess = runBuilder.start();
+            ProcessTree tree = ProcessTree.of(currentProcess);
+            activeTree = tree;
+            if (stopRequested) {
+                tree.terminate();
+            }
             processInput = new OutputStreamWriter(currentProcess.getOutputStream());
+            meter = ProcessMeter.forProcess(currentProcess);
 
+            AtomicLong sequence = new AtomicLong();
             if (containsReadLine) {
-                outputConsumer.accept("Note: Script contains readLine() calls. You'll be prompted for input when needed.");
+                outputConsumer.accept(new OutputChunk(OutputChunk.Stream.STDOUT, sequence.getAndIncrement(),
+                        System.nanoTime(), "Note: Script contains readLine() calls. You'll be prompted for input when needed.", 1));
             }
 
-            Future<?> outputFuture = executorService.submit(() -> {
-                try (BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(currentProcess.getInputStream()), 8192)) {
-
-                    StringBuilder batch = new StringBuilder();
-                    int batchSize = 0;
-                    final int MAX_BATCH_SIZE = 50;
-
-                    int ch;
-                    StringBuilder lineBuffer = new StringBuilder();
-                    long lastCharTime = System.currentTimeMillis();
-                    int inactivityCount = 0;
-
-                    while (true) {
-                        if (reader.ready()) {
-                            ch = reader.read();
-                            if (ch == -1) break;
-                            char c = (char) ch;
-                            lineBuffer.append(c);
-
-                            if (c == '\n') {
-                                String currentLine = lineBuffer.toString();
-                                totalLines++;
-
-                                if (outputBuffer.size() >= maxOutputLines && !outputLimitReached) {
-                                    outputLimitReached = true;
-                                    outputConsumer.accept("\n--- Output limit reached ---\n");
-                                }
-
-                                if (outputBuffer.size() >= maxOutputLines) {
-                                    outputBuffer.poll();
-                                    droppedLines++;
-                                    if (totalLines % 1000 == 0) {
-                                        outputBuffer.add(currentLine.trim());
-                                        batch.append(currentLine);
-                                        batchSize++;
-                                    }
-                                } else {
-                                    outputBuffer.add(currentLine.trim());
-                                    batch.append(currentLine);
-                                    batchSize++;
-                                }
-
-                                if (batchSize >= MAX_BATCH_SIZE) {
-                                    String batchOutput = batch.toString();
-                                    if (!batchOutput.isEmpty()) {
-                                        outputConsumer.accept(batchOutput);
-                                        batch.setLength(0);
-                                        batchSize = 0;
-                                    }
-                                }
-                                lastCharTime = System.currentTimeMillis();
-                                inactivityCount = 0;
-                                lineBuffer.setLength(0);
-                            } else {
-                                lastCharTime = System.currentTimeMillis();
-                                inactivityCount = 0;
-                            }
-                        } else {
-                            if (currentProcess.isAlive()) {
-                                long currentTime = System.currentTimeMillis();
-                                if (containsReadLine && !waitingForInput && (currentTime - lastCharTime > 500)) {
-                                    inactivityCount++;
-                                    if (inactivityCount > 3) {
-                                        if (lineBuffer.length() > 0) {
-                                            outputConsumer.accept(lineBuffer.toString());
-                                            lineBuffer.setLength(0);
-                                        }
-                                        System.out.println("[DEBUG] SwiftRunner: Input required detected");
-                                        waitingForInput = true;
-                                        if (inputRequiredCallback != null) {
-                                            SwingUtilities.invokeLater(inputRequiredCallback);
-                                        }
-                                        inactivityCount = 0;
-                                    }
-                                }
-                                try {
-                                    Thread.sleep(50);
-                                } catch (InterruptedException e) {
-                                    Thread.currentThread().interrupt();
-                                }
-                            } else {
-                                int chDrain = reader.read();
-                                if (chDrain == -1) {
-                                    break;
-                                } else {
-                                    char c = (char) chDrain;
-                                    lineBuffer.append(c);
-                                    if (c == '\n') {
-                                        String currentLine = lineBuffer.toString();
-                                        totalLines++;
-                                        outputBuffer.add(currentLine.trim());
-                                        batch.append(currentLine);
-                                        batchSize++;
-                                        lineBuffer.setLength(0);
-                                    }
-                                }
-                            }
-                        }
+            OutputPump.Listener listener = new OutputPump.Listener() {
+                @Override
+                public synchronized boolean onLine(OutputPump source, byte[] buffer, int start, int end) {
+                    history.add(buffer, start, end);
+                    if (firstOutputNanos == 0) {
+                        firstOutputNanos = System.nanoTime();
                     }
-
-                    if (lineBuffer.length() > 0) {
-                        outputConsumer.accept(lineBuffer.toString());
+                    totalLines++;
+                    outputBytes += end - start + 1;
+                    if (source.getStream() == OutputChunk.Stream.STDERR) {
+                        // Errors are never thinned out: they are usually few, and hold the crash the user needs.
+                        return true;
+                    }
+                    stdoutLines++;
+                    if (stdoutLines <= maxOutputLines) {
+                        return true;
                     }
-                    if (batch.length() > 0) {
-                        outputConsumer.accept(batch.toString());
+                    if (!outputLimitReached) {
+                        outputLimitReached = true;
+                        source.appendToBatch("\n--- Output limit reached ---\n");
                     }
-                } catch (IOException e) {
-                    if (running) {
-                        errorConsumer.accept("Error reading process output: " + e.getMessage());
+                    if (stdoutLines % 1000 == 0) {
+                        return true;
                     }
+                    droppedLines++;
+                    return false;
                 }
-            });
 
-            exitCode[0] = currentProcess.waitFor();
-
-            try {
-                outputFuture.get(2, TimeUnit.SECONDS);
-            } catch (TimeoutException e) {
-                outputFuture.cancel(true);
-            }
+                @Override
+                public void onBatch(OutputChunk chunk) {
+                    outputConsumer.accept(chunk);
+                }
+            };
+            OutputPump outPump = new OutputPump(currentProcess.getInputStream(), OutputChunk.Stream.STDOUT,
+                    sequence, listener);
+            OutputPump errPump = new OutputPump(currentProcess.getErrorStream(), OutputChunk.Stream.STDERR,
+                    sequence, listener);
+            Future<?> outFuture = executorService.submit(() -> drain(outPump, errorConsumer));
+            Future<?> errFuture = executorService.submit(() -> drain(errPump, errorConsumer));
+
+            exitCode[0] = awaitExit(currentProcess, tree, outPump, errPump, meter);
+            runEndNanos = System.nanoTime();
+            tree.awaitOutputClosed(() -> stopRequested, List.of(outPump, errPump), List.of(outFuture, errFuture));
 
         } catch (IOException e) {
             errorConsumer.accept("I/O error: " + e.getMessage());
@@ -242,11 +297,31 @@ public class SwiftRunner implements ScriptRunner {
         } catch (ExecutionException e) {
             errorConsumer.accept("Error in output processing: " + e.getMessage());
         } finally {
+            if (runStartNanos != 0 && runEndNanos == 0) {
+                runEndNanos = System.nanoTime();
+            }
+            lastRunStats = new RunStats(
+                    exitCode[0],
+                    cacheHit,
+                    TimeUnit.NANOSECONDS.toMillis(compileNanos),
+                    firstOutputNanos == 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(firstOutputNanos - runStartNanos),
+                    TimeUnit.NANOSECONDS.toMillis(runEndNanos - runStartNanos),
+                    meter == null ? -1 : meter.getUserCpuMillis(),
+                    meter == null ? -1 : meter.getSystemCpuMillis(),
+                    meter == null ? -1 : meter.getPeakRssBytes(),
+                    outputBytes,
+                    totalLines,
+                    droppedLines
+            );
+            if (!cacheHit && !inputRequested && running && exitCode[0] == 0) {
+                timings.record(strategy, ExecutionTimings.sizeBucket(scriptContent.length()),
+                        lastRunStats.getCompileMillis() + lastRunStats.getRunMillis());
+            }
             running = false;
             waitingForInput = false;
+            activeTree = null;
             currentProcess = null;
             processInput = null;
-            outputBuffer.clear();
             System.gc();
 
             if (tempFile != null && tempFile.exists()) {
@@ -257,11 +332,170 @@ public class SwiftRunner implements ScriptRunner {
         return exitCode[0];
     }
 
+    /**
+     * Runs a compiler command with its output going to a log file. The compiler and the frontend processes
+     * it starts are terminated if the caller is interrupted, and can be by {@link #stopScript()}.
+     */
+    private int runCompiler(List<String> command, Path log) throws IOException, InterruptedException {
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.redirectErrorStream(true);
+        builder.redirectOutput(log.toFile());
+        Process process = builder.start();
+        ProcessTree tree = ProcessTree.of(process);
+        activeTree = tree;
+        try {
+            if (stopRequested) {
+                tree.terminate();
+            }
+            return process.waitFor();
+        } catch (InterruptedException e) {
+            tree.terminateAndWait();
+            throw e;
+        } finally {
+            activeTree = null;
+        }
+    }
+
+    /**
+     * Picks how to execute a script that is not in the artifact cache. Whichever strategy has the lower
+     * recorded turnaround for scripts of this size wins; a strategy without a recording is tried first,
+     * except that large scripts are never sent to the interpreter until it has proven faster. The losing
+     * strategy is run again every {@link #RESAMPLE_RUNS} runs of the bucket, so a stale timing cannot
+     * settle the choice for good.
+     */
+    private String chooseStrategy(int sourceLength) {
+        if ("unknown".equals(ArtifactCache.compilerVersion("swift", "--version"))) {
+            return STRATEGY_COMPILE;
+        }
+        int bucket = ExecutionTimings.sizeBucket(sourceLength);
+        long interpreted = timings.estimate(STRATEGY_INTERPRET, bucket);
+        long compiled = timings.estimate(STRATEGY_COMPILE, bucket);
+        if (interpreted < 0) {
+            return sourceLength <= INTERPRETER_TRIAL_LIMIT ? STRATEGY_INTERPRET : STRATEGY_COMPILE;
+        }
+        if (compiled < 0) {
+            return STRATEGY_COMPILE;
+        }
+        String winner = interpreted <= compiled ? STRATEGY_INTERPRET : STRATEGY_COMPILE;
+        String loser = winner.equals(STRATEGY_INTERPRET) ? STRATEGY_COMPILE : STRATEGY_INTERPRET;
+        return timings.runsSince(loser, bucket) >= RESAMPLE_RUNS ? loser : winner;
+    }
+
+    /**
+     * Compiles the script incrementally in a pooled workspace and stores the binary in the artifact cache.
+     * Returns null if compilation failed, with the compiler's exit code in {@code compileExit[0]}.
+     * Background builds run the compiler at reduced priority.
+     */
+    private Path compile(String scriptContent, String artifactKey, Consumer<String> errorConsumer, int[] compileExit,
+                         boolean background) throws IOException, InterruptedException {
+        SwiftWorkspace workspace = SwiftWorkspace.acquire(artifactCache.getRoot());
+        Path stagingPath = artifactCache.newStagingPath("");
+        try {
+            Path source = workspace.writeSource(scriptContent);
+            List<String> compileCommand = new ArrayList<>();
+            compileCommand.add("swiftc");
+            compileCommand.addAll(COMPILE_FLAGS);
+            compileCommand.addAll(workspace.incrementalFlags());
+            compileCommand.add("-o");
+            compileCommand.add(stagingPath.toString());
+            compileCommand.add(source.toString());
+
+            compileExit[0] = runCompiler(background ? ProcessPriority.lowered(compileCommand) : compileCommand,
+                    workspace.compileLog());
+            if (compileExit[0] != 0) {
+                for (String message : Files.readAllLines(workspace.compileLog())) {
+                    errorConsumer.accept(message);
+                }
+                return null;
+            }
+            Path compiled = artifactCache.store(artifactKey, stagingPath);
+            stagingPath = null;
+            return compiled;
+        } finally {
+            artifactCache.discard(stagingPath);
+            workspace.release();
+        }
+    }
+
+    private void drain(OutputPump pump, Consumer<String> errorConsumer) {
+        try {
+            pump.pump();
+        } catch (IOException e) {
+            if (running) {
+                errorConsumer.accept("Error reading process output: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Waits for the process to exit. While it runs, input requests are detected from /proc where possible:
+     * the script must be seen blocked reading stdin on two consecutive probes. Elsewhere, a script that
+     * reads input and has been quiet for a while is assumed to be waiting for input. The meter, if any,
+     * samples the process tree's resource use on each wake-up, and the tree records new descendants.
+     */
+    private int awaitExit(Process process, ProcessTree tree, OutputPump outPump, OutputPump errPump,
+                          ProcessMeter meter) throws InterruptedException {
+        InputWaitDetector detector = InputWaitDetector.forProcess(process);
+        int inactivityCount = 0;
+        int blockedCount = 0;
+        while (!process.waitFor(detector != null ? InputWaitDetector.PROBE_INTERVAL_MS : INACTIVITY_TICK_MS,
+                TimeUnit.MILLISECONDS)) {
+            tree.refresh();
+            if (meter != null) {
+                meter.sample();
+            }
+            if (detector != null && !detector.isUsable()) {
+                detector = null;
+            }
+            if (detector != null) {
+                if (waitingForInput || !detector.isWaitingForInput()) {
+                    blockedCount = 0;
+                    continue;
+                }
+                if (++blockedCount < 2) {
+                    continue;
+                }
+                blockedCount = 0;
+            } else {
+                if (!containsReadLine || waitingForInput
+                        || Math.min(outPump.millisSinceLastRead(), errPump.millisSinceLastRead()) <= INACTIVITY_THRESHOLD_MS) {
+                    inactivityCount = 0;
+                    continue;
+                }
+                inactivityCount++;
+                if (inactivityCount <= 3) {
+                    continue;
+                }
+                inactivityCount = 0;
+            }
+
+            errPump.flushPartial();
+            outPump.flushPartial();
+            System.out.println("[DEBUG] SwiftRunner: Input required detected");
+            waitingForInput = true;
+            inputRequested = true;
+            if (inputRequiredCallback != null) {
+                inputRequiredCallback.run();
+            }
+        }
+        return process.exitValue();
+    }
+
+    /**
+     * Stops the run in whichever phase it is: waiting for a speculative build, compiling or running. The
+     * compiler or script is terminated with all its descendants, politely first and forcibly after
+     * {@link ProcessTree#GRACE_MS}, without waiting here.
+     */
     @Override
     public void stopScript() {
-        if (currentProcess != null) {
-            running = false;
-            currentProcess.destroy();
+        if (!running) {
+            return;
+        }
+        stopRequested = true;
+        running = false;
+        ProcessTree tree = activeTree;
+        if (tree != null) {
+            tree.terminate();
         }
     }
 
@@ -275,7 +509,33 @@ public class SwiftRunner implements ScriptRunner {
         this.maxOutputLines = maxOutputLines;
     }
 
+    @Override
+    public RunStats getLastRunStats() {
+        return lastRunStats;
+    }
+
+    @Override
+    public LineRingBuffer getOutputHistory() {
+        return outputBuffer;
+    }
+
+    private void closeOutputBuffer() {
+        if (outputBuffer != null) {
+            try {
+                outputBuffer.close();
+            } catch (IOException e) {
+                System.err.println("Could not release output history: " + e.getMessage());
+            }
+            outputBuffer = null;
+        }
+    }
+
+    @Override
     public void shutdown() {
+        closeOutputBuffer();
+        if (!ownsExecutor) {
+            return;
+        }
         executorService.shutdown();
         try {
             if (!executorService.awaitTermination(5, TimeUnit.SECONDS)) {
@@ -0,0 +1,107 @@
+package Runners;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Persistent scratch directory for incremental swiftc builds.
+ * <p>
+ * Keeping the same directory between runs lets the driver reuse its object and dependency files
+ * and the Clang module cache, so recompiling an edited script skips most of the work. Workspaces are
+ * pooled and locked on disk, so concurrent runners and other instances of the tool never share one.
+ */
+class SwiftWorkspace {
+    private static final String SOURCE_NAME = "main.swift";
+    private static final ConcurrentLinkedQueue<SwiftWorkspace> idle = new ConcurrentLinkedQueue<>();
+
+    private final Path directory;
+    private final FileLock lock;
+
+    private SwiftWorkspace(Path directory, FileLock lock) {
+        this.directory = directory;
+        this.lock = lock;
+    }
+
+    static SwiftWorkspace acquire(Path cacheRoot) throws IOException {
+        SwiftWorkspace workspace = idle.poll();
+        if (workspace != null) {
+            return workspace;
+        }
+        for (int i = 0; ; i++) {
+            Path directory = cacheRoot.resolve("swift-work-" + i);
+            Files.createDirectories(directory);
+            FileChannel channel = FileChannel.open(directory.resolve("lock"),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            FileLock lock;
+            try {
+                lock = channel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                lock = null;
+            }
+            if (lock != null) {
+                return new SwiftWorkspace(directory, lock);
+            }
+            channel.close();
+        }
+    }
+
+    /**
+     * Returns the workspace to the pool. The on-disk lock stays held for the life of the JVM.
+     */
+    void release() {
+        if (lock.isValid()) {
+            idle.offer(this);
+        }
+    }
+
+    /**
+     * Writes the script as the workspace's source file, leaving it untouched if the content is unchanged
+     * so the incremental driver does not see a spurious modification.
+     */
+    Path writeSource(String scriptContent) throws IOException {
+        Path source = directory.resolve(SOURCE_NAME);
+        byte[] content = scriptContent.getBytes(StandardCharsets.UTF_8);
+        if (!Files.isRegularFile(source) || !Arrays.equals(Files.readAllBytes(source), content)) {
+            Files.write(source, content);
+        }
+        return source;
+    }
+
+    Path compileLog() {
+        return directory.resolve("compile.log");
+    }
+
+    /**
+     * Driver flags that keep incremental state and the module cache in this workspace.
+     */
+    List<String> incrementalFlags() throws IOException {
+        Path outputFileMap = directory.resolve("output-file-map.json");
+        if (!Files.isRegularFile(outputFileMap)) {
+            String source = jsonString(directory.resolve(SOURCE_NAME));
+            String json = "{\n"
+                    + "  \"\": {\"swift-dependencies\": " + jsonString(directory.resolve("main-build.swiftdeps")) + "},\n"
+                    + "  " + source + ": {\"object\": " + jsonString(directory.resolve("main.o"))
+                    + ", \"swift-dependencies\": " + jsonString(directory.resolve("main.swiftdeps")) + "}\n"
+                    + "}\n";
+            Files.writeString(outputFileMap, json);
+        }
+        return List.of(
+                "-incremental",
+                "-output-file-map", outputFileMap.toString(),
+                "-module-cache-path", directory.resolve("module-cache").toString()
+        );
+    }
+
+    private static String jsonString(Path path) {
+        return "\"" + path.toString().replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+}
@@ -0,0 +1,146 @@
+package Runners;
+
+import java.io.*;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Long-lived JVM started ahead of time by {@link KotlinDaemon}.
+ * <p>
+ * In {@code compile} mode it keeps the Kotlin compiler loaded and serves one compile request per line of stdin,
+ * each on its own thread and prefixed with a request id that its reply ends with; a cancel line for an id
+ * interrupts that compile.
+ * In {@code run} mode it preloads the Kotlin runtime, then waits for a single jar to run and hands its
+ * stdin and stdout over to the script.
+ */
+public final class WarmHost {
+    static final String MODE_COMPILE = "compile";
+    static final String MODE_RUN = "run";
+    static final String ARG_SEPARATOR = "\u0000";
+    static final String EXIT_MARKER = "\u0001EXIT ";
+    static final String CANCEL_MARKER = "\u0001CANCEL ";
+
+    private static final String COMPILER_CLASS = "org.jetbrains.kotlin.cli.jvm.K2JVMCompiler";
+    private static final String[] PRELOADED_CLASSES = {
+            "kotlin.jvm.internal.Intrinsics",
+            "kotlin.io.ConsoleKt",
+            "kotlin.collections.CollectionsKt",
+            "kotlin.text.StringsKt",
+            "kotlin.ranges.RangesKt"
+    };
+
+    private WarmHost() {
+    }
+
+    public static void main(String[] args) throws Throwable {
+        if (args.length == 1 && MODE_COMPILE.equals(args[0])) {
+            serveCompiles();
+        } else if (args.length == 1 && MODE_RUN.equals(args[0])) {
+            runWhenRequested();
+        } else {
+            System.err.println("Usage: WarmHost compile|run");
+            System.exit(2);
+        }
+    }
+
+    private static void serveCompiles() throws Exception {
+        PrintStream protocol = new PrintStream(new FileOutputStream(FileDescriptor.out), true, StandardCharsets.UTF_8);
+        System.setOut(System.err);
+
+        Class<?> compilerClass = Class.forName(COMPILER_CLASS);
+        Method exec = compilerClass.getMethod("exec", PrintStream.class, String[].class);
+
+        BufferedReader requests = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        Map<String, Thread> compiles = new ConcurrentHashMap<>();
+        String request;
+        while ((request = requests.readLine()) != null) {
+            if (request.startsWith(CANCEL_MARKER)) {
+                Thread compile = compiles.get(request.substring(CANCEL_MARKER.length()));
+                if (compile != null) {
+                    compile.interrupt();
+                }
+                continue;
+            }
+            String[] parts = request.split(ARG_SEPARATOR);
+            String id = parts[0];
+            String[] compilerArgs = Arrays.copyOfRange(parts, 1, parts.length);
+            Thread compile = new Thread(() -> {
+                try {
+                    compile(compilerClass, exec, id, compilerArgs, protocol);
+                } finally {
+                    compiles.remove(id);
+                }
+            }, "compile-" + id);
+            compiles.put(id, compile);
+            compile.start();
+        }
+    }
+
+    private static void compile(Class<?> compilerClass, Method exec, String id, String[] args, PrintStream protocol) {
+        ByteArrayOutputStream messages = new ByteArrayOutputStream();
+        int exitCode;
+        try (PrintStream messageStream = new PrintStream(messages, true, StandardCharsets.UTF_8)) {
+            Object compiler = compilerClass.getDeclaredConstructor().newInstance();
+            Object result = exec.invoke(compiler, messageStream, args);
+            exitCode = (Integer) result.getClass().getMethod("getCode").invoke(result);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            messages.writeBytes(("error: " + e).getBytes(StandardCharsets.UTF_8));
+            exitCode = 1;
+        }
+
+        String text = messages.toString(StandardCharsets.UTF_8);
+        synchronized (protocol) {
+            protocol.print(text);
+            if (!text.isEmpty() && !text.endsWith("\n")) {
+                protocol.println();
+            }
+            protocol.println(EXIT_MARKER + id + " " + exitCode);
+        }
+    }
+
+    private static void runWhenRequested() throws Throwable {
+        for (String className : PRELOADED_CLASSES) {
+            try {
+                Class.forName(className);
+            } catch (ClassNotFoundException e) {
+                // Older runtimes may not ship every preloaded class.
+            }
+        }
+
+        String request = readRequestLine(System.in);
+        if (request == null) {
+            return;
+        }
+        String[] parts = request.split(ARG_SEPARATOR);
+        URLClassLoader loader = new URLClassLoader(
+                new URL[]{Paths.get(parts[0]).toUri().toURL()},
+                WarmHost.class.getClassLoader()
+        );
+        Thread.currentThread().setContextClassLoader(loader);
+
+        String[] scriptArgs = new String[parts.length - 2];
+        System.arraycopy(parts, 2, scriptArgs, 0, scriptArgs.length);
+        ScriptLauncher.launch(Class.forName(parts[1], true, loader), scriptArgs);
+    }
+
+    /**
+     * Reads the request one byte at a time so nothing the script should see on stdin is buffered away.
+     */
+    private static String readRequestLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') {
+                return line.toString(StandardCharsets.UTF_8);
+            }
+            line.write(b);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,191 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Reads and writes script files through NIO channels. Meant to be called off the EDT.
+ * <p>
+ * Saves write to a temporary file in the target's directory, force it to disk and move it over the
+ * target atomically, so a crash mid-save leaves either the old file or the new one. Files above
+ * {@link #MAP_THRESHOLD} are memory-mapped when opened, and all files are decoded and handed over in
+ * chunks, so the caller can insert them into a document piece by piece.
+ */
+public class ScriptFiles {
+    public static final int MAP_THRESHOLD = 1024 * 1024;
+    private static final int CHUNK_CHARS = 256 * 1024;
+    private static final int WRITE_BLOCK = 256 * 1024;
+
+    private ScriptFiles() {
+    }
+
+    /**
+     * Decodes a UTF-8 file and passes it to {@code chunks} in pieces with line endings normalized to
+     * {@code \n}. Progress is reported as a percentage of bytes decoded. Returns the number of characters read.
+     */
+    public static long load(Path file, Consumer<String> chunks, IntConsumer progress) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File is too large to open (" + size + " bytes)");
+            }
+            ByteBuffer bytes;
+            if (size >= MAP_THRESHOLD) {
+                bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                bytes = ByteBuffer.allocate((int) size);
+                while (bytes.hasRemaining()) {
+                    if (channel.read(bytes) < 0) {
+                        break;
+                    }
+                }
+                bytes.flip();
+            }
+
+            CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            CharBuffer chars = CharBuffer.allocate(CHUNK_CHARS);
+            StringBuilder chunk = new StringBuilder(CHUNK_CHARS);
+            boolean pendingReturn = false;
+            long total = 0;
+            int lastPercent = -1;
+            boolean done = false;
+            while (!done) {
+                CoderResult result = decoder.decode(bytes, chars, true);
+                if (result.isUnderflow()) {
+                    decoder.flush(chars);
+                    done = true;
+                } else if (result.isError()) {
+                    result.throwException();
+                }
+                chars.flip();
+
+                chunk.setLength(0);
+                if (pendingReturn) {
+                    chunk.append('\r');
+                    pendingReturn = false;
+                }
+                chunk.append(chars);
+                chars.clear();
+                if (!done && chunk.length() > 0 && chunk.charAt(chunk.length() - 1) == '\r') {
+                    chunk.setLength(chunk.length() - 1);
+                    pendingReturn = true;
+                }
+                String text = normalizeLineEndings(chunk);
+                if (!text.isEmpty()) {
+                    chunks.accept(text);
+                    total += text.length();
+                }
+
+                int percent = size == 0 ? 100 : (int) (100L * bytes.position() / size);
+                if (percent != lastPercent) {
+                    lastPercent = percent;
+                    progress.accept(percent);
+                }
+            }
+            return total;
+        }
+    }
+
+    /**
+     * Writes the text as UTF-8 to a temporary file next to {@code target}, forces it to disk and moves it
+     * into place. Progress is reported as a percentage of bytes written. An existing target keeps its
+     * permissions and a new one gets the umask default. Saving over a symbolic link replaces the link with
+     * a regular file.
+     */
+    public static void save(Path target, String text, IntConsumer progress) throws IOException {
+        Path absolute = target.toAbsolutePath();
+        Path directory = absolute.getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        Path temp = createSibling(absolute);
+        try {
+            if (Files.exists(absolute)) {
+                try {
+                    Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(absolute));
+                } catch (UnsupportedOperationException e) {
+                    // Not a POSIX file system; the new file keeps the default permissions.
+                }
+            }
+            ByteBuffer bytes = StandardCharsets.UTF_8.encode(text);
+            int size = bytes.remaining();
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                int lastPercent = -1;
+                while (bytes.hasRemaining()) {
+                    ByteBuffer block = bytes.slice();
+                    block.limit(Math.min(block.remaining(), WRITE_BLOCK));
+                    int written = channel.write(block);
+                    bytes.position(bytes.position() + written);
+                    int percent = size == 0 ? 100 : (int) (100L * bytes.position() / size);
+                    if (percent != lastPercent) {
+                        lastPercent = percent;
+                        progress.accept(percent);
+                    }
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, absolute, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Creates an empty file with an unused name next to {@code target}. Unlike {@link Files#createTempFile},
+     * which makes the file readable by its owner only, this leaves the permissions to the umask.
+     */
+    private static Path createSibling(Path target) throws IOException {
+        while (true) {
+            String suffix = Long.toHexString(ThreadLocalRandom.current().nextLong());
+            Path sibling = target.resolveSibling("." + target.getFileName() + "." + suffix + ".tmp");
+            try {
+                FileChannel.open(sibling, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE).close();
+                return sibling;
+            } catch (FileAlreadyExistsException e) {
+                // Taken; try another name.
+            }
+        }
+    }
+
+    private static String normalizeLineEndings(CharSequence text) {
+        StringBuilder normalized = null;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c != '\r') {
+                if (normalized != null) {
+                    normalized.append(c);
+                }
+                continue;
+            }
+            if (normalized == null) {
+                normalized = new StringBuilder(text.length());
+                normalized.append(text, 0, i);
+            }
+            if (i + 1 < text.length() && text.charAt(i + 1) == '\n') {
+                continue;
+            }
+            normalized.append('\n');
+        }
+        return normalized != null ? normalized.toString() : text.toString();
+    }
+}
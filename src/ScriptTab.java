@@ -0,0 +1,614 @@
+import Highlighters.IncrementalHighlighter;
+import Highlighters.LineIndex;
+import Highlighters.ScriptHighlighter;
+import Runners.RunHandle;
+import Runners.RunScheduler;
+import Runners.RunStats;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultHighlighter;
+import javax.swing.text.Highlighter;
+import java.awt.*;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseMotionAdapter;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * One document of the workspace, with its own editor, output, diagnostics and run.
+ * <p>
+ * Syntax highlighting state is created the first time the tab is shown and paused while another tab is,
+ * and the editor-idle builds and checks only start while the tab is shown. Runs share the window's
+ * {@link RunScheduler}, so a tab holds no threads of its own, and {@link #close()} releases its run,
+ * output history and autosave journal.
+ * <p>
+ * In watch mode a {@link ScriptWatcher} re-runs the watched script whenever it is saved. A run made stale
+ * by a newer save is stopped, and the new run only starts once it has exited, so runs never overlap.
+ */
+public class ScriptTab extends JPanel {
+    private static final int EDITOR_IDLE_MS = 600;
+
+    private final RunScheduler runScheduler;
+    private final JTextPane editor;
+    private final LineIndex lineIndex;
+    private final Output output;
+    private final DiagnosticHighlighter diagnosticHighlighter;
+    private final EditorGutter editorGutter;
+    private final Timer editorIdleTimer;
+    private IncrementalHighlighter incrementalHighlighter;
+    private ScriptHighlighter highlighter;
+    private AutosaveJournal autosave;
+    private ScriptWatcher watcher;
+    private Path watchTarget;
+    private long watchGeneration = 0;
+    /** Counts runs started, so output a replaced run still delivers is not mixed into the new run's. */
+    private volatile long runGeneration = 0;
+
+    private String language;
+    private Path filePath;
+    private final String untitledName;
+    private boolean edited = false;
+    private boolean active = false;
+    private String status = "Ready";
+    private Runnable stateListener;
+    private Consumer<RunHandle> runFinishedListener;
+
+    private RunHandle currentRun;
+    private Future<Boolean> speculativeBuild;
+    private Future<?> typecheck;
+    private long editVersion = 0;
+    private boolean backgroundWorkPending = false;
+    private Diagnostics diagnostics = new Diagnostics();
+    /** How many of {@link #diagnostics} have been handed to the highlighter. */
+    private int underlinedDiagnostics = 0;
+    /** Whether the underlines come from the current run's output, rather than a check or an earlier run. */
+    private boolean showingRunDiagnostics = false;
+
+    public ScriptTab(RunScheduler runScheduler, String untitledName, String language, ScriptHighlighter highlighter) {
+        super(new BorderLayout());
+        this.runScheduler = runScheduler;
+        this.untitledName = untitledName;
+        this.language = language;
+        this.highlighter = highlighter;
+
+        editor = new JTextPane();
+        editor.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        editor.setText("/* Enter your code here */");
+        editor.setBackground(ScriptWindow.DARK_BACKGROUND);
+        editor.setForeground(ScriptWindow.TEXT_COLOUR);
+        editor.setCaretColor(ScriptWindow.TEXT_COLOUR);
+        editor.setSelectionColor(ScriptWindow.SELECTION_COLOUR);
+        editor.setSelectedTextColor(ScriptWindow.TEXT_COLOUR);
+        editor.setMargin(new Insets(10, 10, 10, 10));
+
+        lineIndex = new LineIndex(editor.getDocument());
+        diagnosticHighlighter = new DiagnosticHighlighter(editor, lineIndex);
+        ToolTipManager.sharedInstance().registerComponent(editor);
+        editor.addMouseMotionListener(new MouseMotionAdapter() {
+            @Override
+            public void mouseMoved(MouseEvent e) {
+                editor.setToolTipText(diagnosticHighlighter.messageAt(editor.viewToModel2D(e.getPoint())));
+            }
+        });
+        editor.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                if (e.getKeyCode() == KeyEvent.VK_F8) {
+                    jumpToDiagnostic(!e.isShiftDown());
+                    e.consume();
+                }
+            }
+        });
+
+        editorGutter = new EditorGutter(editor, lineIndex, this::navigateToDiagnostic);
+        editorGutter.setBackground(ScriptWindow.DARK_BACKGROUND);
+        editorGutter.setForeground(ScriptWindow.LINE_NUMBER_COLOUR);
+
+        output = new Output(this::navigateToLocation);
+        output.setBackground(ScriptWindow.DARK_BACKGROUND);
+        output.setForeground(ScriptWindow.TEXT_COLOUR);
+        output.setSelectionColor(ScriptWindow.SELECTION_COLOUR);
+        output.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        output.setInputHandler(this::handleUserInput);
+        output.setDiagnosticsListener(this::showOutputDiagnostics);
+
+        editorIdleTimer = new Timer(EDITOR_IDLE_MS, e -> {
+            backgroundWorkPending = false;
+            startSpeculativeBuild();
+            startTypecheck();
+        });
+        editorIdleTimer.setRepeats(false);
+
+        editor.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                documentChanged(e);
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                documentChanged(e);
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+            }
+        });
+
+        JScrollPane editorScrollPane = new JScrollPane(editor);
+        editorScrollPane.setRowHeaderView(editorGutter);
+        editorScrollPane.getRowHeader().setBackground(ScriptWindow.DARK_BACKGROUND);
+        JScrollPane outputScrollPane = new JScrollPane(output);
+
+        editorScrollPane.getViewport().setBackground(ScriptWindow.DARK_BACKGROUND);
+        editorScrollPane.setBorder(BorderFactory.createEmptyBorder());
+        outputScrollPane.getViewport().setBackground(ScriptWindow.DARK_BACKGROUND);
+        outputScrollPane.setBorder(BorderFactory.createEmptyBorder());
+
+        JSplitPane splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, editorScrollPane, outputScrollPane);
+        splitPane.setResizeWeight(0.6);
+        splitPane.setDividerSize(4);
+        splitPane.setBackground(ScriptWindow.BORDER_COLOUR);
+        splitPane.setBorder(BorderFactory.createEmptyBorder());
+        add(splitPane, BorderLayout.CENTER);
+    }
+
+    private void documentChanged(DocumentEvent e) {
+        lineIndex.update(e);
+        if (autosave != null) {
+            autosave.record(e);
+        }
+        edited = true;
+        if (incrementalHighlighter != null) {
+            incrementalHighlighter.markDamaged(e);
+            incrementalHighlighter.schedule();
+        }
+        scheduleBackgroundWork();
+    }
+
+    /**
+     * Sets a callback run on the EDT whenever the status, run state or title of the tab changes.
+     */
+    public void setStateListener(Runnable stateListener) {
+        this.stateListener = stateListener;
+    }
+
+    /**
+     * Sets a callback run on the EDT when a run of this tab finishes.
+     */
+    public void setRunFinishedListener(Consumer<RunHandle> runFinishedListener) {
+        this.runFinishedListener = runFinishedListener;
+    }
+
+    /**
+     * Shows the tab: creates its highlighting state on first use, resumes highlighting and restarts any
+     * background work that was waiting for the editor to go idle.
+     */
+    public void activate() {
+        active = true;
+        if (incrementalHighlighter == null) {
+            incrementalHighlighter = new IncrementalHighlighter(editor.getStyledDocument(), lineIndex);
+            incrementalHighlighter.setHighlighter(highlighter);
+        }
+        incrementalHighlighter.setPaused(false);
+        if (backgroundWorkPending) {
+            editorIdleTimer.restart();
+        }
+        editor.requestFocusInWindow();
+    }
+
+    /**
+     * Moves the tab to the background, where it does no highlighting and starts no builds or checks.
+     * A run keeps going.
+     */
+    public void deactivate() {
+        active = false;
+        if (incrementalHighlighter != null) {
+            incrementalHighlighter.setPaused(true);
+        }
+        editorIdleTimer.stop();
+    }
+
+    /**
+     * Restores text recovered from a crashed session and journals edits from there on.
+     */
+    public void startAutosave(AutosaveJournal autosave, String recoveredText) {
+        if (recoveredText != null) {
+            editor.setText(recoveredText);
+            editor.setCaretPosition(0);
+            setStatus("Recovered unsaved changes from the last session.");
+        }
+        this.autosave = autosave;
+        autosave.start(editor.getDocument());
+    }
+
+    public void close() {
+        deactivate();
+        stopWatching();
+        if (currentRun != null) {
+            currentRun.release();
+            currentRun = null;
+        }
+        cancelBackgroundWork();
+        if (incrementalHighlighter != null) {
+            incrementalHighlighter.dispose();
+        }
+        output.clear();
+        if (autosave != null) {
+            autosave.close();
+            autosave = null;
+        }
+    }
+
+    public JTextPane getEditor() {
+        return editor;
+    }
+
+    public String getLanguage() {
+        return language;
+    }
+
+    public void setLanguage(String language, ScriptHighlighter highlighter) {
+        this.language = language;
+        this.highlighter = highlighter;
+        if (incrementalHighlighter != null) {
+            incrementalHighlighter.setHighlighter(highlighter);
+            incrementalHighlighter.schedule();
+        }
+        scheduleBackgroundWork();
+    }
+
+    public Path getFilePath() {
+        return filePath;
+    }
+
+    public void setFilePath(Path filePath) {
+        this.filePath = filePath;
+        fireStateChanged();
+    }
+
+    public String getTitle() {
+        return filePath != null ? String.valueOf(filePath.getFileName()) : untitledName;
+    }
+
+    /**
+     * True for a tab that still holds its initial text and no file, which opening a file may reuse.
+     */
+    public boolean isPristine() {
+        return !edited && filePath == null && currentRun == null;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+        fireStateChanged();
+    }
+
+    public RunHandle getCurrentRun() {
+        return currentRun;
+    }
+
+    public boolean isRunActive() {
+        return currentRun != null && currentRun.isActive();
+    }
+
+    public void runScript() {
+        startRun(language, editor.getText(), null, 0);
+    }
+
+    public boolean isWatching() {
+        return watcher != null;
+    }
+
+    /**
+     * Re-runs a script, or the scripts in a directory, whenever they are saved.
+     */
+    public void startWatching(Path target) throws IOException {
+        stopWatching();
+        watcher = new ScriptWatcher(target, (file, script) ->
+                SwingUtilities.invokeLater(() -> runChangedScript(file, script)));
+        watcher.start();
+        watchTarget = target;
+        setStatus("Watching " + target.getFileName() + " for changes.");
+    }
+
+    public void stopWatching() {
+        if (watcher == null) {
+            return;
+        }
+        watcher.close();
+        watcher = null;
+        watchGeneration++;
+        setStatus("Stopped watching " + watchTarget.getFileName() + ".");
+    }
+
+    /**
+     * Runs a script the watcher saw change, once any run it makes stale has been stopped and has exited.
+     */
+    private void runChangedScript(Path file, String script) {
+        if (watcher == null) {
+            return;
+        }
+        long detected = System.nanoTime();
+        long generation = ++watchGeneration;
+        String name = String.valueOf(file.getFileName());
+        String scriptLanguage = name.endsWith(".kts") || name.endsWith(".kt") ? "Kotlin"
+                : name.endsWith(".swift") ? "Swift" : language;
+        RunHandle stale = currentRun;
+        if (stale != null && stale.isActive()) {
+            setStatus("Stopping the previous run of " + name + "...");
+            stale.stop();
+            stale.getExitCode().whenComplete((exitCode, error) -> SwingUtilities.invokeLater(() -> {
+                if (generation == watchGeneration) {
+                    startRun(scriptLanguage, script, name, detected);
+                }
+            }));
+        } else {
+            startRun(scriptLanguage, script, name, detected);
+        }
+    }
+
+    /**
+     * Starts a run, replacing the tab's previous one. A watched run names its file and the time the change
+     * was detected, and reports its timing in the output when it finishes.
+     */
+    private void startRun(String runLanguage, String scriptContent, String watchedName, long detectedNanos) {
+        output.clear();
+        showingRunDiagnostics = false;
+        if (watchedName != null) {
+            output.appendLine("[watch] " + watchedName + " changed at "
+                    + LocalTime.now().truncatedTo(ChronoUnit.SECONDS) + ", running it.");
+        }
+
+        if (currentRun != null) {
+            currentRun.release();
+        }
+        long generation = ++runGeneration;
+        RunHandle run = runScheduler.submit(
+                runLanguage,
+                scriptContent,
+                chunk -> {
+                    if (generation == runGeneration) {
+                        output.append(chunk);
+                    }
+                },
+                error -> {
+                    if (generation == runGeneration) {
+                        output.appendError("ERROR: " + error);
+                    }
+                },
+                this::onInputRequired
+        );
+        currentRun = run;
+        setStatus("Running...");
+
+        run.getExitCode().thenAccept(exitCode -> SwingUtilities.invokeLater(() -> {
+            if (run != currentRun) {
+                return;
+            }
+            RunStats stats = run.getRunner().getLastRunStats();
+            if (watchedName != null) {
+                long totalMillis = (System.nanoTime() - detectedNanos) / 1_000_000;
+                output.appendLine("[watch] " + watchedName + " finished with exit code " + exitCode + " in "
+                        + totalMillis + " ms" + (stats != null ? " " + summarize(stats) : "") + ".");
+            }
+            output.flush();
+            String batching = describeBatching(output.getSavedEdtTasks());
+            output.stopWaitingForInput();
+            if (runFinishedListener != null) {
+                runFinishedListener.accept(run);
+            }
+            if (stats != null) {
+                setStatus("Finished (exit code: " + exitCode + ") " + summarize(stats) + batching);
+            } else {
+                setStatus("Finished (exit code: " + exitCode + ")" + batching);
+            }
+            System.gc();
+        }));
+    }
+
+    public void stopScript() {
+        if (currentRun != null && currentRun.isActive()) {
+            currentRun.stop();
+            output.appendLine("\nScript execution stopped manually.");
+        }
+    }
+
+    private void fireStateChanged() {
+        if (stateListener != null) {
+            stateListener.run();
+        }
+    }
+
+    /**
+     * Abandons background builds and checks of older text and waits for the editor to go idle before
+     * starting new ones.
+     */
+    private void scheduleBackgroundWork() {
+        editVersion++;
+        cancelBackgroundWork();
+        backgroundWorkPending = true;
+        if (active) {
+            editorIdleTimer.restart();
+        }
+    }
+
+    private void cancelBackgroundWork() {
+        editorIdleTimer.stop();
+        if (speculativeBuild != null && !speculativeBuild.isDone()) {
+            speculativeBuild.cancel(true);
+        }
+        speculativeBuild = null;
+        if (typecheck != null && !typecheck.isDone()) {
+            typecheck.cancel(true);
+        }
+        typecheck = null;
+    }
+
+    /**
+     * Compiles the current text into the artifact cache in the background, so pressing Run on it
+     * skips straight to execution. A run started while the build is in flight waits for it.
+     */
+    private void startSpeculativeBuild() {
+        if (runScheduler.supports(language)) {
+            speculativeBuild = runScheduler.precompile(language, editor.getText());
+        }
+    }
+
+    /**
+     * Type-checks the current text in the background and underlines the resulting diagnostics, unless the
+     * text has changed by the time the check finishes.
+     */
+    private void startTypecheck() {
+        if (!runScheduler.supports(language)) {
+            return;
+        }
+        long version = editVersion;
+        typecheck = runScheduler.typecheck(language, editor.getText(), messages -> {
+            Diagnostics checked = Diagnostics.parse(messages);
+            SwingUtilities.invokeLater(() -> {
+                if (version == editVersion) {
+                    showDiagnostics(checked);
+                }
+            });
+        });
+    }
+
+    /**
+     * Shows diagnostics as underlines and gutter markers, and makes them the targets of F8 navigation.
+     */
+    private void showDiagnostics(Diagnostics shown) {
+        diagnostics = shown;
+        underlinedDiagnostics = shown.getAll().size();
+        diagnosticHighlighter.setDiagnostics(shown.getAll());
+        editorGutter.setDiagnostics(shown);
+    }
+
+    /**
+     * Shows the diagnostics of the run's output after a flush. The output's model only grows during a run,
+     * so only the diagnostics added since the last flush are underlined.
+     */
+    private void showOutputDiagnostics() {
+        Diagnostics shown = output.getDiagnostics();
+        List<Diagnostic> all = shown.getAll();
+        if (!showingRunDiagnostics || shown != diagnostics || all.size() < underlinedDiagnostics) {
+            showDiagnostics(shown);
+            showingRunDiagnostics = true;
+            return;
+        }
+        diagnosticHighlighter.addDiagnostics(all.subList(underlinedDiagnostics, all.size()));
+        underlinedDiagnostics = all.size();
+        editorGutter.setDiagnostics(shown);
+    }
+
+    /**
+     * Moves the caret to the next diagnostic after the caret line, or the previous one before it.
+     */
+    private void jumpToDiagnostic(boolean forward) {
+        int caretLine = lineIndex.lineOf(editor.getCaretPosition()) + 1;
+        Diagnostic target = forward ? diagnostics.next(caretLine) : diagnostics.previous(caretLine);
+        if (target == null) {
+            setStatus("No diagnostics.");
+            return;
+        }
+        navigateToDiagnostic(target);
+    }
+
+    private void navigateToDiagnostic(Diagnostic diagnostic) {
+        navigateTo(diagnostic.getLine(), diagnostic.getColumn());
+        setStatus(diagnostic.getSeverity().name().toLowerCase() + ": " + diagnostic.describe());
+    }
+
+    /**
+     * Called on the runner's thread. Output enters input mode on the EDT by itself, and the status is queued
+     * right behind it, so both show after a single hop.
+     */
+    private void onInputRequired() {
+        System.out.println("[DEBUG] ScriptTab: " + language + " input callback triggered");
+        output.startWaitingForInput();
+        SwingUtilities.invokeLater(() -> setStatus("Waiting for input..."));
+    }
+
+    private void handleUserInput(String input) {
+        if (currentRun != null && currentRun.isRunning()) {
+            currentRun.sendInput(input);
+        }
+    }
+
+    private void navigateToLocation(ErrorParser.Location location) {
+        navigateTo(location.getLine(), location.getColumn());
+    }
+
+    private void navigateTo(int lineNumber, int columnNumber) {
+        if (lineNumber < 1 || lineNumber > lineIndex.getLineCount()) {
+            return;
+        }
+        int targetOffset = lineIndex.offsetOf(lineNumber - 1, columnNumber - 1);
+        editor.setCaretPosition(targetOffset);
+        editor.requestFocusInWindow();
+
+        highlightErrorLocation(targetOffset);
+    }
+
+    private void highlightErrorLocation(int offset) {
+        Highlighter highlighter = editor.getHighlighter();
+        Highlighter.HighlightPainter painter =
+                new DefaultHighlighter.DefaultHighlightPainter(new Color(255, 80, 80));
+
+        try {
+            final Object tag = highlighter.addHighlight(offset, offset + 1, painter);
+
+            Timer timer = new Timer(1500, e -> {
+                highlighter.removeHighlight(tag);
+            });
+            timer.setRepeats(false);
+            timer.start();
+        } catch (BadLocationException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Formats the figures of a run that fit in the status bar.
+     */
+    private static String summarize(RunStats stats) {
+        StringBuilder summary = new StringBuilder();
+        summary.append(stats.isCacheHit() ? "cached" : "compile " + stats.getCompileMillis() + " ms");
+        summary.append(", run ").append(stats.getRunMillis()).append(" ms");
+        if (stats.getFirstOutputMillis() >= 0) {
+            summary.append(", first output ").append(stats.getFirstOutputMillis()).append(" ms");
+        }
+        if (stats.getUserCpuMillis() >= 0) {
+            summary.append(", cpu ").append(stats.getUserCpuMillis()).append("+")
+                    .append(stats.getSystemCpuMillis()).append(" ms");
+        }
+        if (stats.getPeakRssBytes() >= 0) {
+            summary.append(", peak ").append(stats.getPeakRssBytes() / (1024 * 1024)).append(" MB");
+        }
+        summary.append(", ").append(stats.getOutputLines()).append(" lines");
+        if (stats.getDroppedLines() > 0) {
+            summary.append(" (").append(stats.getDroppedLines()).append(" not shown)");
+        }
+        return "- " + summary;
+    }
+
+    /**
+     * Describes how many EDT updates output batching avoided during the run, or nothing if none were.
+     */
+    private static String describeBatching(long savedEdtTasks) {
+        return savedEdtTasks > 0 ? ", " + savedEdtTasks + " UI updates batched" : "";
+    }
+}
@@ -0,0 +1,121 @@
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Watches a script file, or the scripts directly inside a directory, and reports each change with the
+ * file's new text.
+ * <p>
+ * Editors often save in several steps (truncate, write, rename), so events are collected until the
+ * directory has been quiet for {@link #QUIET_MS} and the burst is reported once, for the last script it
+ * touched. A save that leaves the text as it was last reported is ignored.
+ */
+public class ScriptWatcher implements AutoCloseable {
+    private static final long QUIET_MS = 200;
+
+    private final Path directory;
+    private final Path file;
+    private final BiConsumer<Path, String> changeHandler;
+    private final WatchService watchService;
+    private final Map<Path, String> lastTexts = new HashMap<>();
+    private Thread thread;
+
+    /**
+     * Watches {@code target}, a script file or a directory of scripts. The handler is called on the
+     * watcher's thread.
+     */
+    public ScriptWatcher(Path target, BiConsumer<Path, String> changeHandler) throws IOException {
+        Path absolute = target.toAbsolutePath();
+        if (Files.isDirectory(absolute)) {
+            directory = absolute;
+            file = null;
+        } else {
+            directory = absolute.getParent();
+            file = absolute;
+        }
+        this.changeHandler = changeHandler;
+        watchService = FileSystems.getDefault().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+    }
+
+    public static boolean isScript(Path path) {
+        String name = String.valueOf(path.getFileName());
+        return name.endsWith(".swift") || name.endsWith(".kts") || name.endsWith(".kt");
+    }
+
+    public void start() {
+        thread = new Thread(this::watch, "script-watch");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            System.err.println("Error closing file watcher: " + e.getMessage());
+        }
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Path changed = null;
+                while (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            if (file != null) {
+                                changed = file;
+                            }
+                            continue;
+                        }
+                        Path path = directory.resolve((Path) event.context());
+                        if (file != null ? path.equals(file) : isScript(path)) {
+                            changed = path;
+                        }
+                    }
+                    key.reset();
+                    key = watchService.poll(QUIET_MS, TimeUnit.MILLISECONDS);
+                }
+                if (changed != null) {
+                    report(changed);
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // Closed by close().
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void report(Path changed) {
+        if (!Files.isRegularFile(changed)) {
+            return;
+        }
+        StringBuilder text = new StringBuilder();
+        try {
+            ScriptFiles.load(changed, text::append, percent -> {
+            });
+        } catch (IOException e) {
+            System.err.println("Could not read changed script " + changed + ": " + e.getMessage());
+            return;
+        }
+        String script = text.toString();
+        if (script.equals(lastTexts.put(changed, script))) {
+            return;
+        }
+        changeHandler.accept(changed, script);
+    }
+}
@@ -1,45 +1,69 @@
 import Highlighters.KotlinHighlighter;
-import Highlighters.ScriptHighlighter;
 import Highlighters.SwiftHighlighter;
+import Runners.KotlinDaemon;
 import Runners.KotlinRunner;
-import Runners.ScriptRunner;
+import Runners.LineRingBuffer;
+import Runners.RunHandle;
+import Runners.RunScheduler;
+import Runners.RunStats;
 import Runners.SwiftRunner;
 
 import javax.swing.*;
 import javax.swing.border.Border;
-import javax.swing.event.*;
 import javax.swing.plaf.basic.BasicComboBoxUI;
 import javax.swing.text.*;
 import java.awt.*;
 import java.awt.event.*;
 import java.awt.geom.Path2D;
-import java.io.FileWriter;
+import java.io.File;
 import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 public class ScriptWindow extends JFrame {
-    private JTextPane editor;
-    private Output output;
+    private JTabbedPane tabbedPane;
+    private ScriptTab activeTab;
+    private final Map<ScriptTab, JLabel> tabTitles = new HashMap<>();
+    private int untitledCount = 0;
+    private boolean syncingControls = false;
     private JButton runButton;
     private JButton stopButton;
     private JLabel statusLabel;
     private JComboBox<String> languageSelector;
+    private JCheckBox warmKotlinCheckBox;
 
     private JTextField filePathField;
+    private JButton newTabButton;
     private JButton saveButton;
+    private JButton openButton;
+    private JToggleButton watchButton;
+    private boolean fileOperationRunning = false;
+    private JButton exportOutputButton;
+    private JButton exportStatsButton;
 
-    private ScriptRunner currentRunner;
-    private SwiftRunner swiftRunner;
-    private KotlinRunner kotlinRunner;
+    private RunScheduler runScheduler;
 
     private final SwiftHighlighter swiftHighlighter;
     private final KotlinHighlighter kotlinHighlighter;
-    private ScriptHighlighter currentHighlighter;
 
-    private static final Color DARK_BACKGROUND = new Color(43, 43, 43);
+    /** CSV rows of the statistics of every run in this session, oldest first. */
+    private final List<String> runStatsRows = new ArrayList<>();
+
+    static final Color DARK_BACKGROUND = new Color(43, 43, 43);
     private static final Color CONTROL_BAR_BG = new Color(60, 63, 65);
-    private static final Color TEXT_COLOUR = new Color(169, 183, 198);
-    private static final Color BORDER_COLOUR = new Color(53, 53, 53);
-    private static final Color SELECTION_COLOUR = new Color(33, 66, 131);
+    static final Color TEXT_COLOUR = new Color(169, 183, 198);
+    static final Color BORDER_COLOUR = new Color(53, 53, 53);
+    static final Color SELECTION_COLOUR = new Color(33, 66, 131);
+    static final Color LINE_NUMBER_COLOUR = new Color(96, 99, 102);
 
 
     public ScriptWindow() {
@@ -74,26 +98,20 @@ public class ScriptWindow extends JFrame {
         } catch (Exception e) {
             e.printStackTrace();
         }
-        currentRunner = swiftRunner;
-
         swiftHighlighter = new SwiftHighlighter();
         kotlinHighlighter = new KotlinHighlighter();
-        currentHighlighter = swiftHighlighter;
 
         initComponents();
         initRunners();
         setupLayout();
         setupListeners();
+        restoreTabs();
 
         setupMemorySettings();
 
         setSize(800, 600);
         setLocationRelativeTo(null);
         setVisible(true);
-
-        applySyntaxHighlighting();
-
-        editor.requestFocusInWindow();
     }
 
     private void setupMemorySettings() {
@@ -102,25 +120,9 @@ public class ScriptWindow extends JFrame {
     }
 
     private void initComponents() {
-        editor = new JTextPane();
-        editor.setFont(new Font("Monospaced", Font.PLAIN, 12));
-        editor.setText("/* Enter your code here */");
-        editor.setBackground(DARK_BACKGROUND);
-        editor.setForeground(TEXT_COLOUR);
-        editor.setCaretColor(TEXT_COLOUR);
-        editor.setSelectionColor(SELECTION_COLOUR);
-        editor.setSelectedTextColor(TEXT_COLOUR);
-        editor.setMargin(new Insets(10, 10, 10, 10));
-
-        output = new Output(this::navigateToLocation);
-        output.setBackground(DARK_BACKGROUND);
-        output.setForeground(TEXT_COLOUR);
-        output.setCaretColor(TEXT_COLOUR);
-        output.setSelectionColor(SELECTION_COLOUR);
-        output.setSelectedTextColor(TEXT_COLOUR);
-        output.setMargin(new Insets(10, 10, 10, 10));
-
-        output.setInputHandler(this::handleUserInput);
+        tabbedPane = new JTabbedPane();
+        tabbedPane.setBackground(CONTROL_BAR_BG);
+        tabbedPane.setForeground(TEXT_COLOUR);
 
         languageSelector = new JComboBox<>(new String[]{"Swift", "Kotlin"});
         languageSelector.setForeground(TEXT_COLOUR);
@@ -168,6 +170,13 @@ public class ScriptWindow extends JFrame {
         });
         languageSelector.setFont(new Font("SF Pro", Font.PLAIN, 14));
 
+        warmKotlinCheckBox = new JCheckBox("Warm Kotlin daemon", false);
+        warmKotlinCheckBox.setForeground(TEXT_COLOUR);
+        warmKotlinCheckBox.setBackground(CONTROL_BAR_BG);
+        warmKotlinCheckBox.setFocusPainted(false);
+        warmKotlinCheckBox.setFont(new Font("SF Pro", Font.PLAIN, 12));
+        warmKotlinCheckBox.setToolTipText("Keep a pre-warmed Kotlin compiler and script host running in the background");
+
         runButton = new JButton();
         runButton.setIcon(Start());
         runButton.setToolTipText("Run Script");
@@ -205,6 +214,56 @@ public class ScriptWindow extends JFrame {
         saveButton.setContentAreaFilled(true);
         saveButton.setOpaque(true);
         saveButton.addActionListener(e -> saveScript());
+
+        openButton = new JButton("Open");
+        openButton.setBackground(SELECTION_COLOUR);
+        openButton.setForeground(TEXT_COLOUR);
+        openButton.setFocusPainted(false);
+        openButton.setBorderPainted(false);
+        openButton.setContentAreaFilled(true);
+        openButton.setOpaque(true);
+        openButton.setToolTipText("Open a script file");
+        openButton.addActionListener(e -> openScript());
+
+        newTabButton = new JButton("New Tab");
+        newTabButton.setBackground(SELECTION_COLOUR);
+        newTabButton.setForeground(TEXT_COLOUR);
+        newTabButton.setFocusPainted(false);
+        newTabButton.setBorderPainted(false);
+        newTabButton.setContentAreaFilled(true);
+        newTabButton.setOpaque(true);
+        newTabButton.setToolTipText("Open an empty script in a new tab");
+        newTabButton.addActionListener(e -> newTab());
+
+        watchButton = new JToggleButton("Watch");
+        watchButton.setBackground(SELECTION_COLOUR);
+        watchButton.setForeground(TEXT_COLOUR);
+        watchButton.setFocusPainted(false);
+        watchButton.setBorderPainted(false);
+        watchButton.setContentAreaFilled(true);
+        watchButton.setOpaque(true);
+        watchButton.setToolTipText("Re-run a script, or the scripts in a folder, whenever they are saved");
+        watchButton.addActionListener(e -> toggleWatch());
+
+        exportOutputButton = new JButton("Export Output");
+        exportOutputButton.setBackground(SELECTION_COLOUR);
+        exportOutputButton.setForeground(TEXT_COLOUR);
+        exportOutputButton.setFocusPainted(false);
+        exportOutputButton.setBorderPainted(false);
+        exportOutputButton.setContentAreaFilled(true);
+        exportOutputButton.setOpaque(true);
+        exportOutputButton.setToolTipText("Save the complete output of the last run, including lines not shown");
+        exportOutputButton.addActionListener(e -> exportOutput());
+
+        exportStatsButton = new JButton("Export Stats");
+        exportStatsButton.setBackground(SELECTION_COLOUR);
+        exportStatsButton.setForeground(TEXT_COLOUR);
+        exportStatsButton.setFocusPainted(false);
+        exportStatsButton.setBorderPainted(false);
+        exportStatsButton.setContentAreaFilled(true);
+        exportStatsButton.setOpaque(true);
+        exportStatsButton.setToolTipText("Save timings and resource use of every run in this session as CSV");
+        exportStatsButton.addActionListener(e -> exportRunStats());
     }
 
     private Icon Start() {
@@ -300,14 +359,6 @@ public class ScriptWindow extends JFrame {
     }
 
     private void setupLayout() {
-        JScrollPane editorScrollPane = new JScrollPane(editor);
-        JScrollPane outputScrollPane = new JScrollPane(output);
-
-        editorScrollPane.getViewport().setBackground(DARK_BACKGROUND);
-        editorScrollPane.setBorder(BorderFactory.createEmptyBorder());
-        outputScrollPane.getViewport().setBackground(DARK_BACKGROUND);
-        outputScrollPane.setBorder(BorderFactory.createEmptyBorder());
-
         JPanel controlPanel = new JPanel(new BorderLayout(10, 0));
         controlPanel.setBorder(BorderFactory.createEmptyBorder(5, 10, 5, 10));
         controlPanel.setBackground(CONTROL_BAR_BG);
@@ -315,6 +366,7 @@ public class ScriptWindow extends JFrame {
         JPanel leftPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 100, 8));
         leftPanel.setBackground(CONTROL_BAR_BG);
         leftPanel.add(languageSelector);
+        leftPanel.add(warmKotlinCheckBox);
 
         JPanel rightPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 10, 0));
         rightPanel.setBackground(CONTROL_BAR_BG);
@@ -325,56 +377,46 @@ public class ScriptWindow extends JFrame {
         controlPanel.add(leftPanel, BorderLayout.WEST);
         controlPanel.add(rightPanel, BorderLayout.EAST);
 
-        JSplitPane splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, editorScrollPane, outputScrollPane);
-        splitPane.setResizeWeight(0.6);
-        splitPane.setDividerSize(4);
-        splitPane.setBackground(BORDER_COLOUR);
-        splitPane.setBorder(BorderFactory.createEmptyBorder());
-
         Container contentPane = getContentPane();
         contentPane.setBackground(BORDER_COLOUR);
         setLayout(new BorderLayout());
         add(controlPanel, BorderLayout.NORTH);
-        add(splitPane, BorderLayout.CENTER);
+        add(tabbedPane, BorderLayout.CENTER);
 
         JPanel savePanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 5));
         savePanel.setBackground(CONTROL_BAR_BG);
         savePanel.add(new JLabel("Save to: "));
         savePanel.add(filePathField);
         savePanel.add(saveButton);
+        savePanel.add(openButton);
+        savePanel.add(newTabButton);
+        savePanel.add(watchButton);
+        savePanel.add(exportOutputButton);
+        savePanel.add(exportStatsButton);
         add(savePanel, BorderLayout.SOUTH);
     }
 
     private void setupListeners() {
-        editor.getDocument().addDocumentListener(new DocumentListener() {
-            @Override
-            public void insertUpdate(DocumentEvent e) {
-                applySyntaxHighlighting();
-            }
-
-            @Override
-            public void removeUpdate(DocumentEvent e) {
-                applySyntaxHighlighting();
-            }
-
-            @Override
-            public void changedUpdate(DocumentEvent e) {
-            }
-        });
-
-        swiftRunner.setInputRequiredCallback(() -> output.startWaitingForInput());
-        kotlinRunner.setInputRequiredCallback(() -> output.startWaitingForInput());
-
         languageSelector.addActionListener((ActionEvent e) -> {
+            if (syncingControls || activeTab == null) {
+                return;
+            }
             String selectedLanguage = (String) languageSelector.getSelectedItem();
             if ("Swift".equals(selectedLanguage)) {
-                currentRunner = swiftRunner;
-                currentHighlighter = swiftHighlighter;
+                activeTab.setLanguage(selectedLanguage, swiftHighlighter);
             } else if ("Kotlin".equals(selectedLanguage)) {
-                currentRunner = kotlinRunner;
-                currentHighlighter = kotlinHighlighter;
+                activeTab.setLanguage(selectedLanguage, kotlinHighlighter);
+                if (warmKotlinCheckBox.isSelected()) {
+                    KotlinRunner.setDaemonMode(true);
+                }
+            }
+        });
+
+        warmKotlinCheckBox.addActionListener((ActionEvent e) -> {
+            boolean warm = warmKotlinCheckBox.isSelected();
+            if (!warm || (activeTab != null && "Kotlin".equals(activeTab.getLanguage()))) {
+                KotlinRunner.setDaemonMode(warm);
             }
-            applySyntaxHighlighting();
         });
 
         runButton.addActionListener((ActionEvent e) -> {
@@ -385,160 +427,364 @@ public class ScriptWindow extends JFrame {
             stopScript();
         });
 
+        tabbedPane.addChangeListener(e -> {
+            ScriptTab selected = (ScriptTab) tabbedPane.getSelectedComponent();
+            if (selected == activeTab) {
+                return;
+            }
+            if (activeTab != null) {
+                activeTab.deactivate();
+            }
+            activeTab = selected;
+            if (activeTab != null) {
+                Path path = activeTab.getFilePath();
+                filePathField.setText(path != null ? path.toString() : "");
+                activeTab.activate();
+            }
+            refreshControls();
+        });
+
         addWindowListener(new WindowAdapter() {
             @Override
             public void windowClosing(WindowEvent e) {
-                swiftRunner.shutdown();
-                kotlinRunner.shutdown();
+                for (ScriptTab tab : tabTitles.keySet()) {
+                    tab.close();
+                }
+                runScheduler.shutdown();
+                KotlinDaemon.shutdownShared();
             }
         });
     }
 
     private void initRunners() {
-        swiftRunner = new SwiftRunner();
-        kotlinRunner = new KotlinRunner();
-        currentRunner = swiftRunner;
-
-        swiftRunner.setInputRequiredCallback(() -> {
-            System.out.println("[DEBUG] ScriptWindow: Swift input callback triggered");
-            SwingUtilities.invokeLater(() -> {
-                output.startWaitingForInput();
-                statusLabel.setText("Waiting for input...");
-            });
-        });
-
-        kotlinRunner.setInputRequiredCallback(() -> {
-            System.out.println("[DEBUG] ScriptWindow: Kotlin input callback triggered");
-            SwingUtilities.invokeLater(() -> {
-                output.startWaitingForInput();
-                statusLabel.setText("Waiting for input...");
-            });
-        });
+        runScheduler = new RunScheduler();
+        runScheduler.register("Swift", SwiftRunner::new);
+        runScheduler.register("Kotlin", KotlinRunner::new);
+    }
 
-        output.setInputHandler((input) -> {
-            System.out.println("[DEBUG] ScriptWindow: Input handler called with: " + input);
-            if (currentRunner != null && currentRunner.isRunning()) {
-                currentRunner.sendInput(input);
+    /**
+     * Reopens a tab for every document a crashed session left in the autosave journal, or a single empty
+     * tab if there are none.
+     */
+    private void restoreTabs() {
+        for (AutosaveJournal journal : AutosaveJournal.openAbandoned(AutosaveJournal.defaultDirectory())) {
+            String recovered = journal.recover();
+            if (recovered != null) {
+                addTab(journal, recovered);
+            } else {
+                journal.close();
             }
-        });
+        }
+        if (tabTitles.isEmpty()) {
+            newTab();
+        }
     }
 
-    private void applySyntaxHighlighting() {
-        SwingUtilities.invokeLater(() -> {
-            int caretPosition = editor.getCaretPosition();
+    private void newTab() {
+        selectTab(addTab(AutosaveJournal.create(AutosaveJournal.defaultDirectory()), null));
+    }
 
-            if (currentHighlighter != null) {
-                currentHighlighter.highlight(editor.getStyledDocument());
-            }
+    /**
+     * Adds a tab for a new or recovered document. Its highlighting state is only created once it is selected.
+     */
+    private ScriptTab addTab(AutosaveJournal autosave, String recoveredText) {
+        untitledCount++;
+        String name = untitledCount == 1 ? "Untitled" : "Untitled " + untitledCount;
+        String language = activeTab != null ? activeTab.getLanguage() : "Swift";
+        ScriptTab tab = new ScriptTab(runScheduler, name, language,
+                "Kotlin".equals(language) ? kotlinHighlighter : swiftHighlighter);
+        tab.setRunFinishedListener(this::recordRunStats);
+        if (autosave != null) {
+            tab.startAutosave(autosave, recoveredText);
+        }
 
-            try {
-                editor.setCaretPosition(caretPosition);
-            } catch (IllegalArgumentException e) {
-                e.printStackTrace();
+        JLabel title = new JLabel(tab.getTitle());
+        title.setForeground(TEXT_COLOUR);
+        JButton closeButton = new JButton("\u00D7");
+        closeButton.setForeground(TEXT_COLOUR);
+        closeButton.setFocusPainted(false);
+        closeButton.setBorderPainted(false);
+        closeButton.setContentAreaFilled(false);
+        closeButton.setMargin(new Insets(0, 4, 0, 0));
+        closeButton.setToolTipText("Close this tab and discard unsaved changes");
+        closeButton.addActionListener(e -> closeTab(tab));
+        JPanel header = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+        header.setOpaque(false);
+        header.add(title);
+        header.add(closeButton);
+
+        tabTitles.put(tab, title);
+        tab.setStateListener(() -> {
+            title.setText(tab.getTitle());
+            if (tab == activeTab) {
+                refreshControls();
             }
         });
+        tabbedPane.addTab(tab.getTitle(), tab);
+        tabbedPane.setTabComponentAt(tabbedPane.indexOfComponent(tab), header);
+        return tab;
     }
 
-    private void handleUserInput(String input) {
-        if (currentRunner != null && currentRunner.isRunning()) {
-            currentRunner.sendInput(input);
-        }
+    private void selectTab(ScriptTab tab) {
+        tabbedPane.setSelectedComponent(tab);
     }
 
-    private void runScript() {
-        output.clear();
-
-        runButton.setEnabled(false);
-        stopButton.setEnabled(true);
-        statusLabel.setText("Running...");
+    private void closeTab(ScriptTab tab) {
+        tabTitles.remove(tab);
+        if (tab == activeTab) {
+            activeTab = null;
+        }
+        tabbedPane.remove(tab);
+        tab.close();
+        if (tabTitles.isEmpty()) {
+            newTab();
+        }
+    }
 
-        String scriptContent = editor.getText();
+    /**
+     * Shows the language, run state and status of the selected tab in the shared controls.
+     */
+    private void refreshControls() {
+        if (activeTab == null) {
+            return;
+        }
+        syncingControls = true;
+        languageSelector.setSelectedItem(activeTab.getLanguage());
+        syncingControls = false;
+        boolean running = activeTab.isRunActive();
+        runButton.setEnabled(!running);
+        stopButton.setEnabled(running);
+        watchButton.setSelected(activeTab.isWatching());
+        statusLabel.setText(activeTab.getStatus());
+    }
 
-        new Thread(() -> {
-            int exitCode = currentRunner.runScript(
-                    scriptContent,
-                    line -> SwingUtilities.invokeLater(() -> output.appendLine(line)),
-                    error -> SwingUtilities.invokeLater(() -> output.appendLine("ERROR: " + error))
-            );
+    private void recordRunStats(RunHandle run) {
+        RunStats stats = run.getRunner().getLastRunStats();
+        if (stats != null) {
+            runStatsRows.add(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME) + ","
+                    + run.getLanguage() + "," + stats.toCsv());
+        }
+    }
 
-            SwingUtilities.invokeLater(() -> {
-                runButton.setEnabled(true);
-                stopButton.setEnabled(false);
-                statusLabel.setText("Finished (exit code: " + exitCode + ")");
-                output.stopWaitingForInput();
-                System.gc();
-            });
-        }).start();
+    private void runScript() {
+        activeTab.runScript();
     }
 
     private void stopScript() {
-        if (currentRunner.isRunning()) {
-            currentRunner.stopScript();
-            output.appendLine("\nScript execution stopped manually.");
-        }
+        activeTab.stopScript();
     }
 
-    private void navigateToLocation(ErrorParser.Location location) {
+    /**
+     * Starts watching a file or folder chosen by the user for the selected tab, or stops watching.
+     */
+    private void toggleWatch() {
+        if (activeTab.isWatching()) {
+            activeTab.stopWatching();
+            return;
+        }
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
+        chooser.setDialogTitle("Watch a script or a folder of scripts");
+        Path current = activeTab.getFilePath() != null ? activeTab.getFilePath() : pathFromField();
+        if (current != null) {
+            chooser.setSelectedFile(current.toFile());
+        }
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            watchButton.setSelected(false);
+            return;
+        }
         try {
-            int line = location.getLine() - 1;
-            int column = location.getColumn() - 1;
-
-            Document doc = editor.getDocument();
+            activeTab.startWatching(chooser.getSelectedFile().toPath());
+        } catch (IOException ex) {
+            watchButton.setSelected(false);
+            statusLabel.setText("Error watching: " + ex.getMessage());
+        }
+    }
 
-            int startOffset = 0;
-            int lineCount = 0;
+    private Path pathFromField() {
+        String filePath = filePathField.getText().trim();
+        return filePath.isEmpty() ? null : Paths.get(filePath);
+    }
 
-            String text = doc.getText(0, doc.getLength());
-            String[] lines = text.split("\n", -1);
+    /**
+     * Saves the selected tab's text off the EDT, through a temporary file that replaces the target atomically.
+     */
+    private void saveScript() {
+        Path target = pathFromField();
+        if (target == null) {
+            statusLabel.setText("Please enter a file path.");
+            return;
+        }
+        if (fileOperationRunning) {
+            statusLabel.setText("Wait for the current file operation to finish.");
+            return;
+        }
+        ScriptTab tab = activeTab;
+        String name = String.valueOf(target.getFileName());
+        String text = tab.getEditor().getText();
+        setFileOperationRunning(true);
+        tab.setStatus("Saving " + name + "...");
 
-            if (line < lines.length) {
-                for (int i = 0; i < line; i++) {
-                    startOffset += lines[i].length() + 1;
+        new Thread(() -> {
+            String status;
+            boolean saved = false;
+            try {
+                ScriptFiles.save(target, text, percent -> SwingUtilities.invokeLater(
+                        () -> tab.setStatus("Saving " + name + "... " + percent + "%")));
+                status = "Script saved successfully.";
+                saved = true;
+            } catch (IOException ex) {
+                status = "Error saving script: " + ex.getMessage();
+            }
+            String finalStatus = status;
+            boolean finalSaved = saved;
+            SwingUtilities.invokeLater(() -> {
+                setFileOperationRunning(false);
+                if (finalSaved) {
+                    tab.setFilePath(target);
                 }
+                tab.setStatus(finalStatus);
+            });
+        }, "script-save").start();
+    }
 
-                int targetColumn = Math.min(column, lines[line].length());
-                int targetOffset = startOffset + targetColumn;
+    /**
+     * Opens a script off the EDT, into the selected tab if it is still untouched or a new tab otherwise.
+     * The file is decoded in chunks, each inserted into the editor on the EDT before the next is read,
+     * so the window stays responsive while a large file loads.
+     */
+    private void openScript() {
+        if (fileOperationRunning) {
+            statusLabel.setText("Wait for the current file operation to finish.");
+            return;
+        }
+        JFileChooser chooser = new JFileChooser();
+        Path currentPath = pathFromField();
+        if (currentPath != null) {
+            chooser.setSelectedFile(currentPath.toFile());
+        }
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path file = chooser.getSelectedFile().toPath();
+        String name = String.valueOf(file.getFileName());
+        if (!activeTab.isPristine()) {
+            newTab();
+        }
+        ScriptTab tab = activeTab;
+        if (name.endsWith(".kts") || name.endsWith(".kt")) {
+            languageSelector.setSelectedItem("Kotlin");
+        } else if (name.endsWith(".swift")) {
+            languageSelector.setSelectedItem("Swift");
+        }
 
-                editor.setCaretPosition(targetOffset);
-                editor.requestFocusInWindow();
+        setFileOperationRunning(true);
+        JTextPane editor = tab.getEditor();
+        editor.setEditable(false);
+        editor.setText("");
+        tab.setStatus("Opening " + name + "...");
+        Document doc = editor.getDocument();
 
-                highlightErrorLocation(targetOffset);
+        new Thread(() -> {
+            String status;
+            try {
+                ScriptFiles.load(file, chunk -> insertChunk(doc, chunk), percent -> SwingUtilities.invokeLater(
+                        () -> tab.setStatus("Opening " + name + "... " + percent + "%")));
+                status = "Opened " + name + ".";
+            } catch (IOException ex) {
+                status = "Error opening script: " + ex.getMessage();
             }
-        } catch (BadLocationException e) {
+            String finalStatus = status;
+            SwingUtilities.invokeLater(() -> {
+                editor.setEditable(true);
+                editor.setCaretPosition(0);
+                tab.setFilePath(file);
+                if (tab == activeTab) {
+                    filePathField.setText(file.toString());
+                }
+                setFileOperationRunning(false);
+                tab.setStatus(finalStatus);
+            });
+        }, "script-open").start();
+    }
+
+    /**
+     * Appends a chunk of a file being opened to the document on the EDT, waiting until it is in.
+     */
+    private static void insertChunk(Document doc, String chunk) {
+        try {
+            SwingUtilities.invokeAndWait(() -> {
+                try {
+                    doc.insertString(doc.getLength(), chunk, null);
+                } catch (BadLocationException e) {
+                    e.printStackTrace();
+                }
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (InvocationTargetException e) {
             e.printStackTrace();
         }
     }
 
-    private void highlightErrorLocation(int offset) {
-        Highlighter highlighter = editor.getHighlighter();
-        Highlighter.HighlightPainter painter =
-                new DefaultHighlighter.DefaultHighlightPainter(new Color(255, 80, 80));
+    private void setFileOperationRunning(boolean running) {
+        fileOperationRunning = running;
+        saveButton.setEnabled(!running);
+        openButton.setEnabled(!running);
+    }
 
-        try {
-            final Object tag = highlighter.addHighlight(offset, offset + 1, painter);
+    private void exportOutput() {
+        RunHandle currentRun = activeTab.getCurrentRun();
+        LineRingBuffer history = currentRun == null ? null : currentRun.getRunner().getOutputHistory();
+        if (history == null || history.getLineCount() == 0) {
+            statusLabel.setText("No output to export.");
+            return;
+        }
+        if (currentRun.isActive()) {
+            statusLabel.setText("Wait for the script to finish before exporting.");
+            return;
+        }
 
-            Timer timer = new Timer(1500, e -> {
-                highlighter.removeHighlight(tag);
-            });
-            timer.setRepeats(false);
-            timer.start();
-        } catch (BadLocationException e) {
-            e.printStackTrace();
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File("output.txt"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
         }
+        File target = chooser.getSelectedFile();
+        statusLabel.setText("Exporting output...");
+
+        new Thread(() -> {
+            String status;
+            try {
+                history.export(target.toPath());
+                status = "Exported " + history.getLineCount() + " lines.";
+            } catch (IOException ex) {
+                status = "Error exporting output: " + ex.getMessage();
+            }
+            String finalStatus = status;
+            SwingUtilities.invokeLater(() -> statusLabel.setText(finalStatus));
+        }).start();
     }
 
-    private void saveScript() {
-        String filePath = filePathField.getText().trim();
-        if (filePath.isEmpty()) {
-            statusLabel.setText("Please enter a file path.");
+    private void exportRunStats() {
+        if (runStatsRows.isEmpty()) {
+            statusLabel.setText("No runs to export.");
             return;
         }
-        try (FileWriter writer = new FileWriter(filePath)) {
-            writer.write(editor.getText());
-            statusLabel.setText("Script saved successfully.");
+
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File("run-stats.csv"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        List<String> rows = new ArrayList<>();
+        rows.add("finished_at,language," + RunStats.CSV_HEADER);
+        rows.addAll(runStatsRows);
+        try {
+            Files.write(chooser.getSelectedFile().toPath(), rows, StandardCharsets.UTF_8);
+            statusLabel.setText("Exported statistics of " + runStatsRows.size() + " runs.");
         } catch (IOException ex) {
-            statusLabel.setText("Error saving script: " + ex.getMessage());
+            statusLabel.setText("Error exporting statistics: " + ex.getMessage());
         }
     }
 }
-
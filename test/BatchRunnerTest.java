@@ -0,0 +1,100 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs batch mode in a separate JVM against stand-in {@code swift} and {@code swiftc} commands that treat the
+ * script as a shell script, so the test does not need a Swift toolchain.
+ */
+class BatchRunnerTest {
+    private static final int LINES = 5000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @Timeout(120)
+    void logHoldsEveryLineOfALargeRun() throws Exception {
+        assumeTrue(Files.isExecutable(Paths.get("/bin/sh")), "needs a POSIX shell");
+
+        Path bin = Files.createDirectories(directory.resolve("bin"));
+        writeExecutable(bin.resolve("swiftc"), "#!/bin/sh\n"
+                + "if [ \"$1\" = \"--version\" ]; then echo 'stand-in swiftc'; exit 0; fi\n"
+                + "out=''\n"
+                + "src=''\n"
+                + "while [ $# -gt 0 ]; do\n"
+                + "  case \"$1\" in\n"
+                + "    -o) out=\"$2\"; shift ;;\n"
+                + "    *) src=\"$1\" ;;\n"
+                + "  esac\n"
+                + "  shift\n"
+                + "done\n"
+                + "{ echo '#!/bin/sh'; cat \"$src\"; } > \"$out\" && chmod +x \"$out\"\n");
+        writeExecutable(bin.resolve("swift"), "#!/bin/sh\n"
+                + "if [ \"$1\" = \"--version\" ]; then echo 'stand-in swift'; exit 0; fi\n"
+                + "exec /bin/sh \"$1\"\n");
+
+        Path script = directory.resolve("big.swift");
+        Files.writeString(script, "i=1\n"
+                + "while [ $i -le " + LINES + " ]; do echo line$i; i=$((i+1)); done\n"
+                + "echo err1 >&2\n"
+                + "exit 3\n");
+        Path logs = directory.resolve("logs");
+        Path tmp = Files.createDirectories(directory.resolve("tmp"));
+
+        ProcessBuilder builder = new ProcessBuilder(
+                Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-Djava.awt.headless=true",
+                "-Djava.io.tmpdir=" + tmp,
+                "-cp", System.getProperty("java.class.path"),
+                "Main", "--batch", "--out", logs.toString(), script.toString());
+        builder.environment().put("PATH", bin + File.pathSeparator + System.getenv("PATH"));
+        builder.redirectErrorStream(true);
+        builder.redirectOutput(directory.resolve("batch.out").toFile());
+        Process batch = builder.start();
+        assertTrue(batch.waitFor(100, TimeUnit.SECONDS), "batch run did not finish");
+        assertEquals(1, batch.exitValue(), "a script exiting with 3 should fail the batch");
+
+        List<String> log = Files.readAllLines(logs.resolve("big.swift.log"), StandardCharsets.UTF_8);
+        List<String> stdout = new ArrayList<>();
+        for (String line : log) {
+            if (line.startsWith("line")) {
+                stdout.add(line);
+            }
+        }
+        assertEquals(LINES, stdout.size());
+        for (int i = 0; i < LINES; i++) {
+            assertEquals("line" + (i + 1), stdout.get(i));
+        }
+        assertTrue(log.contains("err1"), "stderr line missing from the log");
+        assertFalse(log.stream().anyMatch(line -> line.contains("Output limit reached")));
+
+        List<String> csv = Files.readAllLines(logs.resolve("run-stats.csv"), StandardCharsets.UTF_8);
+        List<String> header = Arrays.asList(csv.get(0).split(","));
+        String[] row = csv.get(1).split(",");
+        assertEquals("3", row[header.indexOf("exit_code")]);
+        assertEquals("0", row[header.indexOf("dropped_lines")]);
+        assertEquals(String.valueOf(LINES + 1), row[header.indexOf("output_lines")]);
+    }
+
+    private static void writeExecutable(Path path, String content) throws IOException {
+        Files.writeString(path, content);
+        assertTrue(path.toFile().setExecutable(true));
+    }
+}